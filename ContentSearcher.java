@@ -0,0 +1,297 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Content stage behind the name match: files the engine accepts are searched by body on a pool of workers and
+// only those with a matching line are passed on, tagged with their line numbers. Large files are read through
+// memory-mapped regions, small ones through a reused heap buffer (mapping costs more than it saves there).
+// Files with a NUL byte near the start are taken as binary and skipped, as grep does.
+// The walk is held back whenever the files queued or being searched would exceed the byte budget.
+public class ContentSearcher implements SearchSink {
+    private static final int MAP_THRESHOLD = 256 * 1024;
+    private static final int REGION_SIZE = 64 * 1024 * 1024;
+    private static final int BINARY_PROBE = 8 * 1024;
+    private static final int MAX_LINES_PER_FILE = 1000;
+    private static final int PAGE = 4096;
+
+    private final Pattern pattern; // Applied to bytes read as ISO-8859-1, see toBytePattern
+    private final byte[] literal;  // Set when the pattern is a plain literal, searched without the regex engine
+    private final int[] literalShift;
+    private final SearchSink downstream;
+    private final SearchStats stats;
+    private final ExecutorService workers;
+    private final Semaphore budget; // In pages
+    private final int budgetPages;
+    private final ThreadLocal<ByteBuffer> smallBuffers = ThreadLocal.withInitial(() -> ByteBuffer.allocate(MAP_THRESHOLD));
+    private final ThreadLocal<Matcher> matchers;
+
+    public ContentSearcher(Pattern contentPattern, int parallelism, long budgetBytes, SearchSink downstream, SearchStats stats) {
+        this.pattern = toBytePattern(contentPattern);
+        this.literal = isLiteral(contentPattern) ? contentPattern.pattern().getBytes(StandardCharsets.UTF_8) : null;
+        this.literalShift = literal != null && literal.length > 0 ? skipTable(literal) : null;
+        this.downstream = downstream;
+        this.stats = stats;
+        this.workers = Executors.newFixedThreadPool(parallelism);
+        this.budgetPages = (int) Math.max(REGION_SIZE / PAGE, Math.min(Integer.MAX_VALUE, budgetBytes / PAGE));
+        this.budget = new Semaphore(budgetPages);
+        this.matchers = ThreadLocal.withInitial(() -> pattern.matcher(""));
+    }
+
+    // File bodies are matched as raw bytes; a non-ASCII literal in the regex is spelled out as its UTF-8 bytes
+    // so it still finds UTF-8 text. ^ and $ work per line.
+    private static Pattern toBytePattern(Pattern contentPattern) {
+        String bytes = new String(contentPattern.pattern().getBytes(StandardCharsets.UTF_8), StandardCharsets.ISO_8859_1);
+        return Pattern.compile(bytes, contentPattern.flags() | Pattern.MULTILINE);
+    }
+
+    private static boolean isLiteral(Pattern contentPattern) {
+        if (contentPattern.flags() != 0) {
+            return false;
+        }
+        String regex = contentPattern.pattern();
+        for (int i = 0; i < regex.length(); i++) {
+            if ("[](){}.*+?|^$\\".indexOf(regex.charAt(i)) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int[] skipTable(byte[] literal) {
+        int[] table = new int[256];
+        Arrays.fill(table, literal.length);
+        for (int i = 0; i < literal.length - 1; i++) {
+            table[literal[i] & 0xFF] = literal.length - 1 - i;
+        }
+        return table;
+    }
+
+    @Override
+    public void accept(SearchResult result) {
+        if (!result.isFile() || downstream.isCancelled()) {
+            return;
+        }
+        // A file is held in memory one region at a time
+        int pages = (int) Math.min(budgetPages, (Math.min(result.getSize(), REGION_SIZE) + PAGE - 1) / PAGE);
+        try {
+            budget.acquire(pages);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        workers.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    search(result);
+                } finally {
+                    budget.release(pages);
+                }
+            }
+        });
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return downstream.isCancelled();
+    }
+
+    // Waits for every queued file; call once the engine's search has returned
+    public void finish() {
+        workers.shutdown();
+        try {
+            while (!workers.awaitTermination(1, TimeUnit.SECONDS)) {
+                if (downstream.isCancelled()) {
+                    workers.shutdownNow();
+                }
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Drops whatever is still queued and stops the workers; for a search that ended in an exception
+    public void abort() {
+        workers.shutdownNow();
+    }
+
+    private void search(SearchResult result) {
+        if (downstream.isCancelled()) {
+            return;
+        }
+        int[] lines = new int[16];
+        int lineCount = 0;
+        long searched = 0;
+        try (FileChannel channel = FileChannel.open(result.getPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            int line = 1;
+            while (position < size && lineCount < MAX_LINES_PER_FILE && !downstream.isCancelled()) {
+                ByteBuffer region = size <= MAP_THRESHOLD ? read(channel, (int) size)
+                        : channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(REGION_SIZE, size - position));
+                if (position == 0 && isBinary(region)) {
+                    stats.binarySkipped();
+                    return;
+                }
+                // Regions end on a line break so no line is split between two of them
+                int length = region.limit();
+                if (size > MAP_THRESHOLD && position + length < size) {
+                    int lastBreak = lastIndexOf(region, (byte) '\n', length);
+                    length = lastBreak >= 0 ? lastBreak + 1 : length;
+                }
+
+                int start = 0;
+                while (start < length && lineCount < MAX_LINES_PER_FILE) {
+                    int found = find(region, start, length);
+                    if (found < 0) {
+                        break;
+                    }
+                    line += count(region, (byte) '\n', start, found);
+                    if (lineCount == lines.length) {
+                        lines = Arrays.copyOf(lines, lineCount * 2);
+                    }
+                    lines[lineCount++] = line;
+                    // One hit per line is enough; go on from the next line
+                    int lineEnd = indexOf(region, (byte) '\n', found, length);
+                    if (lineEnd < 0) {
+                        start = length;
+                        break;
+                    }
+                    line++;
+                    start = lineEnd + 1;
+                }
+                line += count(region, (byte) '\n', start, length);
+                position += length;
+                searched += length;
+                if (region.limit() == 0) {
+                    break; // Truncated while we were reading it
+                }
+            }
+        } catch (IOException e) {
+            return; // Unreadable or gone; nothing to report
+        } finally {
+            stats.contentSearched(searched);
+        }
+
+        if (lineCount > 0 && !downstream.isCancelled()) {
+            result.setMatchedLines(Arrays.copyOf(lines, lineCount));
+            stats.contentMatched();
+            downstream.accept(result);
+        }
+    }
+
+    private ByteBuffer read(FileChannel channel, int size) throws IOException {
+        ByteBuffer buffer = smallBuffers.get();
+        buffer.clear().limit(size);
+        while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+            // Keep reading until full or end of file
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static boolean isBinary(ByteBuffer region) {
+        return indexOf(region, (byte) 0, 0, Math.min(BINARY_PROBE, region.limit())) >= 0;
+    }
+
+    // Start of the first match at or after from, or -1
+    private int find(ByteBuffer region, int from, int length) {
+        if (literalShift != null) {
+            int last = length - literal.length;
+            int i = from;
+            while (i <= last) {
+                int j = literal.length - 1;
+                while (j >= 0 && region.get(i + j) == literal[j]) {
+                    j--;
+                }
+                if (j < 0) {
+                    return i;
+                }
+                i += literalShift[region.get(i + literal.length - 1) & 0xFF];
+            }
+            return -1;
+        }
+        Matcher matcher = matchers.get();
+        matcher.reset(new ByteSequence(region, length));
+        return matcher.find(from) ? matcher.start() : -1;
+    }
+
+    private static int indexOf(ByteBuffer region, byte value, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (region.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int lastIndexOf(ByteBuffer region, byte value, int to) {
+        for (int i = to - 1; i >= 0; i--) {
+            if (region.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int count(ByteBuffer region, byte value, int from, int to) {
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if (region.get(i) == value) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // A buffer seen as ISO-8859-1 text, one char per byte, without decoding or copying it
+    private static class ByteSequence implements CharSequence {
+        private final ByteBuffer buffer;
+        private final int offset;
+        private final int length;
+
+        ByteSequence(ByteBuffer buffer, int length) {
+            this(buffer, 0, length);
+        }
+
+        private ByteSequence(ByteBuffer buffer, int offset, int length) {
+            this.buffer = buffer;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (buffer.get(offset + index) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new ByteSequence(buffer, offset + start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            byte[] bytes = new byte[length];
+            for (int i = 0; i < length; i++) {
+                bytes[i] = buffer.get(offset + i);
+            }
+            return new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+    }
+}
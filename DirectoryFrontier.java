@@ -0,0 +1,240 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+// Directories waiting to be listed by OrderedSearchEngine, in the order -order= asks for:
+//   bfs     first in, first out, so every directory at one depth comes before any below it (shallowest first)
+//   recent  most recently modified directory first
+// At most memoryLimit entries are held in memory; the rest are spilled to temporary files, so a very wide tree
+// costs disk instead of heap. close() deletes the files.
+public abstract class DirectoryFrontier {
+    public static class Entry {
+        final Path directory;
+        final int depth;
+        final long lastModified;
+
+        Entry(Path directory, int depth, long lastModified) {
+            this.directory = directory;
+            this.depth = depth;
+            this.lastModified = lastModified;
+        }
+    }
+
+    protected final int memoryLimit;
+
+    protected DirectoryFrontier(int memoryLimit) {
+        this.memoryLimit = Math.max(2, memoryLimit);
+    }
+
+    // Null for an unknown order
+    public static DirectoryFrontier create(String order, int memoryLimit) {
+        if (order.equals("bfs")) {
+            return new Fifo(memoryLimit);
+        } else if (order.equals("recent")) {
+            return new NewestFirst(memoryLimit);
+        }
+        return null;
+    }
+
+    public abstract void add(Entry entry) throws IOException;
+
+    // Null when empty
+    public abstract Entry poll() throws IOException;
+
+    public abstract void close();
+
+    protected static DataOutputStream createSpillFile(Path file) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024));
+    }
+
+    protected static void write(DataOutputStream out, Entry entry) throws IOException {
+        byte[] path = entry.directory.toString().getBytes(StandardCharsets.UTF_8);
+        out.writeInt(path.length);
+        out.write(path);
+        out.writeInt(entry.depth);
+        out.writeLong(entry.lastModified);
+    }
+
+    // Reads a whole spill file back and deletes it
+    protected static void readAll(Path file, Collection<Entry> into) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 64 * 1024))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                byte[] path = new byte[length];
+                in.readFully(path);
+                into.add(new Entry(Paths.get(new String(path, StandardCharsets.UTF_8)), in.readInt(), in.readLong()));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    protected static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // Left in the temp directory
+        }
+    }
+
+    // The oldest entries are in memory. Once memory is full, new entries go to spill segments of memoryLimit
+    // entries each, and a segment is read back whole when memory runs dry, so the order stays exact.
+    private static class Fifo extends DirectoryFrontier {
+        private final ArrayDeque<Entry> memory = new ArrayDeque<>();
+        private final ArrayDeque<Path> segments = new ArrayDeque<>(); // Full segments, oldest first
+        private Path writeFile;
+        private DataOutputStream writer; // Segment being filled; null if none
+        private int writeCount;
+
+        Fifo(int memoryLimit) {
+            super(memoryLimit);
+        }
+
+        @Override
+        public void add(Entry entry) throws IOException {
+            if (segments.isEmpty() && writer == null && memory.size() < memoryLimit) {
+                memory.add(entry);
+                return;
+            }
+            if (writer == null) {
+                writeFile = Files.createTempFile("frontier", ".spill");
+                writer = createSpillFile(writeFile);
+                writeCount = 0;
+            }
+            write(writer, entry);
+            if (++writeCount == memoryLimit) {
+                closeSegment();
+            }
+        }
+
+        private void closeSegment() throws IOException {
+            writer.close();
+            writer = null;
+            segments.add(writeFile);
+        }
+
+        @Override
+        public Entry poll() throws IOException {
+            if (memory.isEmpty()) {
+                if (segments.isEmpty() && writer != null) {
+                    closeSegment();
+                }
+                if (!segments.isEmpty()) {
+                    readAll(segments.poll(), memory);
+                }
+            }
+            return memory.poll();
+        }
+
+        @Override
+        public void close() {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    // Deleted below either way
+                }
+                delete(writeFile);
+            }
+            for (Path segment : segments) {
+                delete(segment);
+            }
+        }
+    }
+
+    // A heap in memory. When it overflows, its older half is written out as a run; a run comes back when the
+    // heap runs dry, or earlier if its newest entry beats the heap's and there is room. The order is exact
+    // among the entries in memory and approximate across runs.
+    private static class NewestFirst extends DirectoryFrontier {
+        private static final Comparator<Entry> NEWEST_FIRST = new Comparator<Entry>() {
+            @Override
+            public int compare(Entry a, Entry b) {
+                return Long.compare(b.lastModified, a.lastModified);
+            }
+        };
+
+        private static class Run {
+            final Path file;
+            final long newest;
+            final int count;
+
+            Run(Path file, long newest, int count) {
+                this.file = file;
+                this.newest = newest;
+                this.count = count;
+            }
+        }
+
+        private final PriorityQueue<Entry> memory = new PriorityQueue<>(NEWEST_FIRST);
+        private final List<Run> runs = new ArrayList<>();
+
+        NewestFirst(int memoryLimit) {
+            super(memoryLimit);
+        }
+
+        @Override
+        public void add(Entry entry) throws IOException {
+            memory.add(entry);
+            if (memory.size() > memoryLimit) {
+                spill();
+            }
+        }
+
+        private void spill() throws IOException {
+            Entry[] entries = memory.toArray(new Entry[0]);
+            Arrays.sort(entries, NEWEST_FIRST);
+            int keep = entries.length / 2;
+            Path file = Files.createTempFile("frontier", ".spill");
+            try (DataOutputStream out = createSpillFile(file)) {
+                for (int i = keep; i < entries.length; i++) {
+                    write(out, entries[i]);
+                }
+            }
+            runs.add(new Run(file, entries[keep].lastModified, entries.length - keep));
+            memory.clear();
+            memory.addAll(Arrays.asList(entries).subList(0, keep));
+        }
+
+        @Override
+        public Entry poll() throws IOException {
+            Run best = null;
+            for (Run run : runs) {
+                if (best == null || run.newest > best.newest) {
+                    best = run;
+                }
+            }
+            if (best != null && (memory.isEmpty()
+                    || (best.newest > memory.peek().lastModified && memory.size() + best.count <= memoryLimit))) {
+                runs.remove(best);
+                readAll(best.file, memory);
+            }
+            return memory.poll();
+        }
+
+        @Override
+        public void close() {
+            for (Run run : runs) {
+                delete(run.file);
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+// Per-directory step shared by all engines: list, match, publish, and report where to descend next.
+// Each entry's attributes are read exactly once and travel with the result.
+public class DirectoryScanner {
+    private final SearchCriteria criteria;
+    private final SearchSink sink;
+    private final SearchStats stats;
+    private final Object rootFileSystem; // Set with -xdev only
+    private final VisitedDirectories visited; // Set with -followLinks only
+
+    public DirectoryScanner(Path root, SearchCriteria criteria, SearchSink sink, SearchStats stats) {
+        this.criteria = criteria;
+        this.sink = sink;
+        this.stats = stats;
+        ExcludeRules excludeRules = criteria.getExcludeRules();
+        // The root is listed through a link either way
+        this.rootFileSystem = excludeRules != null && excludeRules.isSameFileSystem() ? ExcludeRules.fileSystemOf(root, true) : null;
+        this.visited = criteria.isFollowLinks() ? new VisitedDirectories() : null;
+        if (visited != null) {
+            visited.add(root);
+        }
+    }
+
+    public List<Path> scan(Path directory, int depth) {
+        return scan(directory, depth, null);
+    }
+
+    // Matches are published as they are found. Matching stops once the directory's maxHorizontal quota or the
+    // depth's quota is filled, and listing stops too unless subdirectories still have to be found.
+    // subdirectoryModified, if not null, receives the mtime of each returned subdirectory, in the same order.
+    public List<Path> scan(Path directory, int depth, List<Long> subdirectoryModified) {
+        List<Path> subdirectories = new ArrayList<>();
+        boolean descend = criteria.canDescend(depth + 1);
+        int quota = criteria.isDepthFull(depth) ? 0 : criteria.getMaxHorizontal();
+        int count = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path entry : stream) {
+                if (sink.isCancelled() || (count >= quota && !descend)) {
+                    break;
+                }
+                BasicFileAttributes attributes = readAttributes(entry, visited != null);
+                if (attributes == null) {
+                    continue;
+                }
+                stats.scanned(attributes.isDirectory());
+                if (criteria.isExcluded(entry, depth)) {
+                    continue;
+                }
+                if (count < quota && criteria.matches(entry.getFileName().toString(), attributes, depth)) {
+                    stats.matched(attributes.isDirectory());
+                    sink.accept(criteria.tag(new SearchResult(entry, attributes, depth)));
+                    count++;
+                    if (criteria.isDepthFull(depth)) {
+                        quota = count;
+                    }
+                }
+                if (attributes.isDirectory() && descend && isOnRootFileSystem(entry) && (visited == null || visited.add(entry))) {
+                    subdirectories.add(entry);
+                    if (subdirectoryModified != null) {
+                        subdirectoryModified.add(attributes.lastModifiedTime().toMillis());
+                    }
+                }
+            }
+        } catch (IOException | DirectoryIteratorException e) {
+            // Unreadable directory, same as listFiles() returning null; keep whatever was listed before the failure
+        }
+        return subdirectories;
+    }
+
+    private boolean isOnRootFileSystem(Path directory) {
+        return rootFileSystem == null || rootFileSystem.equals(ExcludeRules.fileSystemOf(directory, visited != null));
+    }
+
+    static BasicFileAttributes readAttributes(Path entry) {
+        return readAttributes(entry, false);
+    }
+
+    // Following links, a dangling link still comes back as the link itself
+    static BasicFileAttributes readAttributes(Path entry, boolean followLinks) {
+        if (followLinks) {
+            try {
+                return Files.readAttributes(entry, BasicFileAttributes.class);
+            } catch (IOException e) {
+                // Fall through to the link itself
+            }
+        }
+        try {
+            return Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
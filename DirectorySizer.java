@@ -0,0 +1,130 @@
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// du mode: walks the whole tree on a fork/join pool and adds sizes and file counts up from the leaves, each
+// directory's task returning its totals to its parent. Only per-directory totals exist, and only while the
+// parent still waits for them. Directories down to maxRecursionDepth that pass the criteria are published with
+// their totals as size; deeper ones are still counted. The root itself is published last, at depth -1.
+// Symbolic links are counted as themselves unless -followLinks is given; then each directory counts once, however
+// many paths lead to it.
+public class DirectorySizer implements SearchEngine {
+    private final int parallelism;
+
+    public DirectorySizer(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    public void search(Path root, SearchCriteria criteria, SearchSink sink, SearchStats stats) {
+        BasicFileAttributes rootAttributes = DirectoryScanner.readAttributes(root);
+        if (rootAttributes == null) {
+            return;
+        }
+        ExcludeRules excludeRules = criteria.getExcludeRules();
+        // The root is listed through a link either way
+        Object rootFileSystem = excludeRules != null && excludeRules.isSameFileSystem() ? ExcludeRules.fileSystemOf(root, true) : null;
+        VisitedDirectories visited = criteria.isFollowLinks() ? new VisitedDirectories() : null;
+        if (visited != null) {
+            visited.add(root);
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            Totals totals = pool.invoke(new SizeTask(root, rootAttributes, -1, rootFileSystem, visited, criteria, sink, stats));
+            if (!sink.isCancelled()) {
+                sink.accept(totals.toResult(root, rootAttributes, -1));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static class Totals {
+        long bytes;
+        long files;
+
+        SearchResult toResult(Path directory, BasicFileAttributes attributes, int depth) {
+            SearchResult result = new SearchResult(directory, true, false, bytes, attributes.lastModifiedTime().toMillis(), depth);
+            result.setFileCount(files);
+            return result;
+        }
+    }
+
+    private static class SizeTask extends RecursiveTask<Totals> {
+        private final Path directory;
+        private final BasicFileAttributes attributes;
+        private final int depth;
+        private final Object rootFileSystem; // Set with -xdev only
+        private final VisitedDirectories visited; // Set with -followLinks only
+        private final SearchCriteria criteria;
+        private final SearchSink sink;
+        private final SearchStats stats;
+
+        SizeTask(Path directory, BasicFileAttributes attributes, int depth, Object rootFileSystem, VisitedDirectories visited,
+                 SearchCriteria criteria, SearchSink sink, SearchStats stats) {
+            this.directory = directory;
+            this.attributes = attributes;
+            this.depth = depth;
+            this.rootFileSystem = rootFileSystem;
+            this.visited = visited;
+            this.criteria = criteria;
+            this.sink = sink;
+            this.stats = stats;
+        }
+
+        @Override
+        protected Totals compute() {
+            Totals totals = new Totals();
+            if (sink.isCancelled()) {
+                return totals;
+            }
+
+            List<SizeTask> subdirectories = new ArrayList<>();
+            long files = 0;
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                for (Path entry : stream) {
+                    BasicFileAttributes entryAttributes = DirectoryScanner.readAttributes(entry, visited != null);
+                    // Excluded entries and other file systems count for nothing, as with du --exclude and du -x
+                    if (entryAttributes == null || criteria.isExcluded(entry, depth + 1)) {
+                        continue;
+                    }
+                    if (entryAttributes.isDirectory()) {
+                        if ((rootFileSystem != null && !rootFileSystem.equals(ExcludeRules.fileSystemOf(entry, visited != null)))
+                                || (visited != null && !visited.add(entry))) {
+                            continue;
+                        }
+                        subdirectories.add(new SizeTask(entry, entryAttributes, depth + 1, rootFileSystem, visited, criteria, sink, stats));
+                    } else {
+                        totals.bytes += entryAttributes.size();
+                        files++;
+                    }
+                }
+            } catch (IOException | DirectoryIteratorException e) {
+                // Unreadable directory: counts with whatever was listed
+            }
+            totals.files = files;
+            stats.addScanned(files, subdirectories.size());
+
+            invokeAll(subdirectories);
+            for (SizeTask subdirectory : subdirectories) {
+                Totals subtotals = subdirectory.join();
+                totals.bytes += subtotals.bytes;
+                totals.files += subtotals.files;
+            }
+
+            if (depth >= 0 && criteria.canDescend(depth) && !sink.isCancelled()
+                    && criteria.matches(directory.getFileName().toString(), attributes, depth)) {
+                stats.matched(true);
+                sink.accept(totals.toResult(directory, attributes, depth));
+            }
+            return totals;
+        }
+    }
+}
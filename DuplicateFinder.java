@@ -0,0 +1,191 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.zip.CRC32C;
+
+// Duplicate stage: collects every file the engine accepts, then narrows them down in steps that each read
+// more of fewer files. Files are grouped by size; a size shared by several files gets its first and last
+// few KB checksummed; only files still alike after that are hashed in full (SHA-256). Each surviving group
+// is published with a group number, largest reclaimable space first. Empty files are left out.
+public class DuplicateFinder implements SearchSink {
+    private static final int SAMPLE = 4 * 1024;
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private final SearchSink downstream;
+    private final SearchStats stats;
+    private final int parallelism;
+    private final ConcurrentLinkedQueue<Candidate> candidates = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<ByteBuffer> buffers = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+
+    private static class Candidate {
+        final SearchResult result;
+        long sample;     // Checksum of the head and tail
+        ByteBuffer hash; // Full content hash; for files no bigger than two samples it is computed in the first step
+        boolean unreadable;
+
+        Candidate(SearchResult result) {
+            this.result = result;
+        }
+
+        long size() {
+            return result.getSize();
+        }
+    }
+
+    public DuplicateFinder(int parallelism, SearchSink downstream, SearchStats stats) {
+        this.parallelism = parallelism;
+        this.downstream = downstream;
+        this.stats = stats;
+    }
+
+    @Override
+    public void accept(SearchResult result) {
+        if (result.isFile() && result.getSize() > 0) {
+            candidates.add(new Candidate(result));
+        }
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return downstream.isCancelled();
+    }
+
+    // Runs the hashing steps over everything collected and publishes the groups; call once the search has returned
+    public void finish() {
+        Collection<List<Candidate>> groups = group(candidates, candidate -> candidate.size());
+        candidates.clear();
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<Candidate> sampled = flatten(groups);
+            pool.submit(() -> sampled.parallelStream().forEach(this::sample)).join();
+            groups = group(sampled, candidate -> Arrays.asList(candidate.size(), candidate.sample, candidate.hash));
+
+            List<Candidate> hashed = flatten(groups);
+            pool.submit(() -> hashed.parallelStream().filter(candidate -> candidate.hash == null).forEach(this::hash)).join();
+            groups = group(hashed, candidate -> Arrays.asList(candidate.size(), candidate.hash));
+        } finally {
+            pool.shutdownNow();
+        }
+
+        List<List<Candidate>> duplicates = new ArrayList<>(groups);
+        duplicates.sort(Comparator.comparingLong((List<Candidate> group) -> reclaimable(group)).reversed());
+        int groupNumber = 0;
+        for (List<Candidate> group : duplicates) {
+            if (downstream.isCancelled()) {
+                return;
+            }
+            groupNumber++;
+            stats.duplicateGroup(reclaimable(group));
+            group.sort(Comparator.comparing(candidate -> candidate.result.getPath()));
+            for (Candidate candidate : group) {
+                candidate.result.setDuplicateGroup(groupNumber);
+                downstream.accept(candidate.result);
+            }
+        }
+    }
+
+    private static long reclaimable(List<Candidate> group) {
+        return (group.size() - 1) * group.get(0).size();
+    }
+
+    // Groups by key and keeps only groups with more than one member; unreadable files drop out
+    private static Collection<List<Candidate>> group(Iterable<Candidate> candidates, Function<Candidate, Object> key) {
+        Map<Object, List<Candidate>> groups = new HashMap<>();
+        for (Candidate candidate : candidates) {
+            if (!candidate.unreadable) {
+                groups.computeIfAbsent(key.apply(candidate), k -> new ArrayList<>(2)).add(candidate);
+            }
+        }
+        groups.values().removeIf(group -> group.size() < 2);
+        return groups.values();
+    }
+
+    private static List<Candidate> flatten(Collection<List<Candidate>> groups) {
+        List<Candidate> all = new ArrayList<>();
+        for (List<Candidate> group : groups) {
+            all.addAll(group);
+        }
+        return all;
+    }
+
+    private void sample(Candidate candidate) {
+        if (downstream.isCancelled()) {
+            return;
+        }
+        if (candidate.size() <= 2 * SAMPLE) {
+            hash(candidate); // Reading it all costs no more than the samples
+            return;
+        }
+        ByteBuffer buffer = buffers.get();
+        try (FileChannel channel = FileChannel.open(candidate.result.getPath(), StandardOpenOption.READ)) {
+            CRC32C checksum = new CRC32C();
+            buffer.clear().limit(SAMPLE);
+            readFully(channel, buffer, 0);
+            buffer.flip();
+            checksum.update(buffer);
+            buffer.clear().limit(SAMPLE);
+            readFully(channel, buffer, candidate.size() - SAMPLE);
+            buffer.flip();
+            checksum.update(buffer);
+            candidate.sample = checksum.getValue();
+            stats.duplicateBytesRead(2 * SAMPLE);
+        } catch (IOException e) {
+            candidate.unreadable = true;
+        }
+    }
+
+    private void hash(Candidate candidate) {
+        if (downstream.isCancelled()) {
+            return;
+        }
+        ByteBuffer buffer = buffers.get();
+        try (FileChannel channel = FileChannel.open(candidate.result.getPath(), StandardOpenOption.READ)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            long read = 0;
+            buffer.clear();
+            int count;
+            while ((count = channel.read(buffer)) >= 0) {
+                read += count;
+                if (!buffer.hasRemaining()) {
+                    buffer.flip();
+                    digest.update(buffer);
+                    buffer.clear();
+                }
+            }
+            buffer.flip();
+            digest.update(buffer);
+            stats.duplicateBytesRead(read);
+            // A file that changed size since it was listed cannot be a duplicate of what it was grouped with
+            candidate.hash = ByteBuffer.wrap(digest.digest());
+            candidate.unreadable = read != candidate.size();
+        } catch (IOException e) {
+            candidate.unreadable = true;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // Every JRE has SHA-256
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int count = channel.read(buffer, position);
+            if (count < 0) {
+                throw new IOException("File shrank while it was read");
+            }
+            position += count;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Parts of the tree a search leaves out, from -exclude= and -xdev. An excluded entry is neither matched nor,
+// if it is a directory, listed, so its whole subtree costs nothing. A pattern is a glob on the entry's name,
+// or on its path below the search root when it contains a '/'; "regex:" makes it a regex instead. Plain
+// names such as .git or node_modules are looked up in a set. With -xdev, directories on another file system
+// than the root are still matched but not entered.
+public class ExcludeRules {
+    private final Set<String> names = new HashSet<>();
+    private final List<PathMatcher> nameMatchers = new ArrayList<>();
+    private final List<PathMatcher> pathMatchers = new ArrayList<>();
+    private boolean sameFileSystem = false;
+
+    public void add(String pattern) {
+        String syntax = "glob:";
+        if (pattern.startsWith("regex:") || pattern.startsWith("glob:")) {
+            syntax = "";
+        } else if (pattern.indexOf('/') < 0 && !hasGlobCharacters(pattern)) {
+            names.add(pattern);
+            return;
+        }
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher(syntax + pattern);
+        (pattern.indexOf('/') >= 0 ? pathMatchers : nameMatchers).add(matcher);
+    }
+
+    private static boolean hasGlobCharacters(String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            if ("*?[]{}\\".indexOf(pattern.charAt(i)) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void setSameFileSystem(boolean sameFileSystem) {
+        this.sameFileSystem = sameFileSystem;
+    }
+
+    public boolean isSameFileSystem() {
+        return sameFileSystem;
+    }
+
+    // True when no pattern was added; -xdev alone leaves every entry to match
+    public boolean hasNoPatterns() {
+        return names.isEmpty() && nameMatchers.isEmpty() && pathMatchers.isEmpty();
+    }
+
+    // entry lies depth + 1 names below the search root (the root's own entries are at depth 0)
+    public boolean excludes(Path entry, int depth) {
+        Path name = entry.getFileName();
+        if (name == null) {
+            return false;
+        }
+        if (!names.isEmpty() && names.contains(name.toString())) {
+            return true;
+        }
+        for (PathMatcher matcher : nameMatchers) {
+            if (matcher.matches(name)) {
+                return true;
+            }
+        }
+        if (!pathMatchers.isEmpty()) {
+            int count = entry.getNameCount();
+            Path relative = entry.subpath(Math.max(0, count - depth - 1), count);
+            for (PathMatcher matcher : pathMatchers) {
+                if (matcher.matches(relative)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Identifies the file system a directory is on; equal values mean the same one. The device number costs
+    // one stat where the platform has it; the FileStore is the fallback, as resolving it can mean reading the
+    // mount table. Null if the directory cannot be read. With followLinks a symbolic link counts as the file
+    // system of its target, which is where the walk goes when it follows it.
+    public static Object fileSystemOf(Path directory, boolean followLinks) {
+        try {
+            return followLinks ? Files.getAttribute(directory, "unix:dev")
+                    : Files.getAttribute(directory, "unix:dev", LinkOption.NOFOLLOW_LINKS);
+        } catch (UnsupportedOperationException | IllegalArgumentException e) {
+            try {
+                return Files.getFileStore(directory);
+            } catch (IOException storeException) {
+                return null;
+            }
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
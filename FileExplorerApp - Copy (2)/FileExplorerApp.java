@@ -6,6 +6,7 @@ import java.awt.event.ActionListener;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.swing.Timer;
@@ -35,10 +36,11 @@ public class FileExplorerApp extends JFrame {
     private JLabel elapsedTimeLabel;
     private JLabel currentLocationLabel;
 
-    private int filesScanned = 0;
-    private int foldersScanned = 0;
-    private int filesMatched = 0;
-    private int foldersMatched = 0;
+    private final LongAdder filesScanned = new LongAdder();
+    private final LongAdder foldersScanned = new LongAdder();
+    private final LongAdder filesMatched = new LongAdder();
+    private final LongAdder foldersMatched = new LongAdder();
+    private volatile File currentLocation;
 
     public FileExplorerApp() {
         setTitle("File Explorer Application");
@@ -195,10 +197,11 @@ public class FileExplorerApp extends JFrame {
         if (directory.exists() && directory.isDirectory()) {
             tableModel.setRowCount(0); // Clear previous results
             allResults.clear(); // Clear previous allResults
-            filesScanned = 0;
-            foldersScanned = 0;
-            filesMatched = 0;
-            foldersMatched = 0;
+            filesScanned.reset();
+            foldersScanned.reset();
+            filesMatched.reset();
+            foldersMatched.reset();
+            currentLocation = null;
             startTime = System.nanoTime();
 
             currentTask = new SearchTask(directory, pattern, 0);
@@ -209,6 +212,7 @@ public class FileExplorerApp extends JFrame {
                 public void actionPerformed(ActionEvent e) {
                     long elapsedTime = System.nanoTime() - startTime;
                     elapsedTimeLabel.setText(String.format("Elapsed Time: %.6f s", elapsedTime / 1e9));
+                    updateStatistics();
                 }
             });
             timer.start();
@@ -217,6 +221,24 @@ public class FileExplorerApp extends JFrame {
         }
     }
 
+    private void updateStatistics() {
+        long files = filesScanned.sum();
+        long folders = foldersScanned.sum();
+        long matchedFiles = filesMatched.sum();
+        long matchedFolders = foldersMatched.sum();
+        File location = currentLocation;
+
+        filesScannedLabel.setText("Files Scanned: " + files);
+        foldersScannedLabel.setText("Folders Scanned: " + folders);
+        totalScannedLabel.setText("Files and Folders Scanned: " + (files + folders));
+        filesMatchedLabel.setText("Files Matched: " + matchedFiles);
+        foldersMatchedLabel.setText("Folders Matched: " + matchedFolders);
+        totalMatchedLabel.setText("Files and Folders Matched: " + (matchedFiles + matchedFolders));
+        if (location != null) {
+            currentLocationLabel.setText("Current Location: " + location.getAbsolutePath());
+        }
+    }
+
     private void updateDisplay() {
         tableModel.setRowCount(0); // Clear current display
 
@@ -258,41 +280,28 @@ public class FileExplorerApp extends JFrame {
                 for (File file : files) {
                     if (isCancelled()) return;
 
-                    currentLocationLabel.setText("Current Location: " + file.getAbsolutePath());
+                    currentLocation = file;
 
                     if (file.isDirectory()) {
-                        foldersScanned++;
+                        foldersScanned.increment();
                         if (depth >= minRecursionDepth && folderCheckBox.isSelected()) {
                             Matcher matcher = regexPattern.matcher(file.getName());
                             if (matcher.find()) {
-                                foldersMatched++;
+                                foldersMatched.increment();
                                 publish(file);
                             }
                         }
                         searchFilesRecursive(file, depth + 1);
                     } else {
-                        filesScanned++;
+                        filesScanned.increment();
                         if (depth >= minRecursionDepth && fileCheckBox.isSelected()) {
                             Matcher matcher = regexPattern.matcher(file.getName());
                             if (matcher.find()) {
-                                filesMatched++;
+                                filesMatched.increment();
                                 publish(file);
                             }
                         }
                     }
-
-                    // Update statistics
-                    SwingUtilities.invokeLater(new Runnable() {
-                        @Override
-                        public void run() {
-                            filesScannedLabel.setText("Files Scanned: " + filesScanned);
-                            foldersScannedLabel.setText("Folders Scanned: " + foldersScanned);
-                            totalScannedLabel.setText("Files and Folders Scanned: " + (filesScanned + foldersScanned));
-                            filesMatchedLabel.setText("Files Matched: " + filesMatched);
-                            foldersMatchedLabel.setText("Folders Matched: " + foldersMatched);
-                            totalMatchedLabel.setText("Files and Folders Matched: " + (filesMatched + foldersMatched));
-                        }
-                    });
                 }
             }
         }
@@ -314,6 +323,7 @@ public class FileExplorerApp extends JFrame {
                 e.printStackTrace();
             } finally {
                 timer.stop();
+                updateStatistics();
             }
         }
     }
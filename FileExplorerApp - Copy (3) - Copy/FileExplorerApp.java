@@ -3,11 +3,21 @@ import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.swing.Timer;
@@ -22,13 +32,12 @@ public class FileExplorerApp extends JFrame {
     private DefaultTableModel tableModel;
     private List<File> allResults;
     private int maxRecursionDepth = 0;  // Default recursion depth to 0
-    private int minRecursionDepth = 0;
     private int maxHorizontal = Integer.MAX_VALUE;
-    private Date minDateModified;
-    private Date maxDateModified;
+    private File checkpointFile;  // -checkpoint=FILE: a paused search is saved there and can be resumed after a restart
     private SearchTask currentTask;
+    private SearchCheckpoint checkpoint;  // State of the paused search; null when there is nothing to resume
     private Timer timer;
-    private long startTime;
+    private volatile long startTime;  // Moved back by the time already spent when a search is resumed
     private boolean isPaused = false;
 
     private JLabel filesScannedLabel;
@@ -38,14 +47,17 @@ public class FileExplorerApp extends JFrame {
     private JLabel foldersMatchedLabel;
     private JLabel totalMatchedLabel;
     private JLabel elapsedTimeLabel;
+    private JLabel rejectedLabel;
     private JLabel currentLocationLabel;
 
-    private int filesScanned = 0;
-    private int foldersScanned = 0;
-    private int filesMatched = 0;
-    private int foldersMatched = 0;
+    // Saved with a checkpoint, see counters()
+    private final LongAdder filesScanned = new LongAdder();
+    private final LongAdder foldersScanned = new LongAdder();
+    private final LongAdder filesMatched = new LongAdder();
+    private final LongAdder foldersMatched = new LongAdder();
+    private volatile File currentLocation;
 
-    private static final SimpleDateFormat isoDateFormat = new SimpleDateFormat("yyyy-MM-dd-HH-mm-ssXXX");
+    private static final String ISO_DATE_FORMAT = "yyyy-MM-dd-HH-mm-ssXXX";
 
     public FileExplorerApp() {
         setTitle("File Explorer Application");
@@ -107,6 +119,8 @@ public class FileExplorerApp extends JFrame {
                     timer.stop();
                     setCheckBoxesEnabled(true);
                 }
+                checkpoint = null;
+                isPaused = false;
             }
         });
         checkBoxPanel.add(stopButton);
@@ -115,11 +129,9 @@ public class FileExplorerApp extends JFrame {
         pauseButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
+                // The task stops between two entries and hands its state to done()
                 if (currentTask != null && !currentTask.isDone()) {
-                    isPaused = true;
-                    currentTask.cancel(true);
-                    timer.stop();
-                    setCheckBoxesEnabled(true);
+                    currentTask.requestPause();
                 }
             }
         });
@@ -129,9 +141,17 @@ public class FileExplorerApp extends JFrame {
         resumeButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                if (isPaused) {
-                    isPaused = false;
-                    startSearch();
+                if (currentTask != null && !currentTask.isDone()) {
+                    return;
+                }
+                if (checkpoint != null) {
+                    resumeSearch(checkpoint, null);
+                } else {
+                    // Nothing paused in this session; a search saved by an earlier one may still be on disk
+                    parseCommands();
+                    if (checkpointFile != null && checkpointFile.isFile()) {
+                        resumeSearch(null, checkpointFile);
+                    }
                 }
             }
         });
@@ -167,6 +187,7 @@ public class FileExplorerApp extends JFrame {
         foldersMatchedLabel = new JLabel("Folders Matched: 0");
         totalMatchedLabel = new JLabel("Files and Folders Matched: 0");
         elapsedTimeLabel = new JLabel("Elapsed Time: 0.000 000s");
+        rejectedLabel = new JLabel("");
 
         statsPanel.add(filesScannedLabel);
         statsPanel.add(foldersScannedLabel);
@@ -175,6 +196,7 @@ public class FileExplorerApp extends JFrame {
         statsPanel.add(foldersMatchedLabel);
         statsPanel.add(totalMatchedLabel);
         statsPanel.add(elapsedTimeLabel);
+        statsPanel.add(rejectedLabel);
 
         panel.add(statsPanel, BorderLayout.SOUTH);
 
@@ -208,12 +230,11 @@ public class FileExplorerApp extends JFrame {
         });
     }
 
+    // Settings of the app itself; the filter options in the same text are compiled by FilterPipeline.compile
     private void parseCommands() {
         String commands = commandField.getText();
-        minRecursionDepth = 0;
         maxHorizontal = Integer.MAX_VALUE;
-        minDateModified = null;
-        maxDateModified = null;
+        checkpointFile = null;
 
         String[] commandArray = commands.split("\\s+");
         for (String command : commandArray) {
@@ -223,38 +244,18 @@ public class FileExplorerApp extends JFrame {
                 } catch (NumberFormatException e) {
                     maxRecursionDepth = 0;  // Default to 0 if invalid value
                 }
-            } else if (command.startsWith("-minRecursionDepth=")) {
-                try {
-                    minRecursionDepth = Integer.parseInt(command.substring(19));
-                } catch (NumberFormatException e) {
-                    minRecursionDepth = 0;
-                }
             } else if (command.startsWith("-maxHorizontal=")) {
                 try {
                     maxHorizontal = Integer.parseInt(command.substring(15));
                 } catch (NumberFormatException e) {
                     maxHorizontal = Integer.MAX_VALUE;
                 }
-            } else if (command.startsWith("--mindateModified=")) {
-                try {
-                    minDateModified = parseDate(command.substring(18));
-                } catch (ParseException e) {
-                    minDateModified = null;
-                }
-            } else if (command.startsWith("--maxdateModified=")) {
-                try {
-                    maxDateModified = parseDate(command.substring(18));
-                } catch (ParseException e) {
-                    maxDateModified = null;
-                }
+            } else if (command.startsWith("-checkpoint=")) {
+                checkpointFile = new File(command.substring(12));
             }
         }
     }
 
-    private Date parseDate(String dateStr) throws ParseException {
-        return isoDateFormat.parse(dateStr);
-    }
-
     private void startSearch() {
         parseCommands();
         String pattern = searchPatternField.getText();
@@ -264,30 +265,80 @@ public class FileExplorerApp extends JFrame {
         if (directory.exists() && directory.isDirectory()) {
             tableModel.setRowCount(0); // Clear previous results
             allResults.clear(); // Clear previous allResults
-            filesScanned = 0;
-            foldersScanned = 0;
-            filesMatched = 0;
-            foldersMatched = 0;
-            startTime = System.nanoTime();
+            resetStatistics();
+            checkpoint = null;
+            isPaused = false;
 
-            setCheckBoxesEnabled(false);
-
-            currentTask = new SearchTask(directory, pattern, 0);
-            currentTask.execute();
-
-            timer = new Timer(100, new ActionListener() {
-                @Override
-                public void actionPerformed(ActionEvent e) {
-                    long elapsedTime = System.nanoTime() - startTime;
-                    elapsedTimeLabel.setText(String.format("Elapsed Time: %.6f s", elapsedTime / 1e9));
-                }
-            });
-            timer.start();
+            SearchCheckpoint state = new SearchCheckpoint(directory, pattern, commandField.getText(), maxRecursionDepth);
+            runTask(new SearchTask(state, null, checkpointFile));
         } else {
             JOptionPane.showMessageDialog(this, "Invalid directory!", "Error", JOptionPane.ERROR_MESSAGE);
         }
     }
 
+    // Continues a paused search from its frontier, or the one saved in savedCheckpoint when state is null.
+    // Results and counters so far are kept rather than found again.
+    private void resumeSearch(SearchCheckpoint state, File savedCheckpoint) {
+        isPaused = false;
+        if (state == null) {
+            tableModel.setRowCount(0);
+            allResults.clear();
+            resetStatistics();
+        }
+        runTask(new SearchTask(state, savedCheckpoint, savedCheckpoint != null ? savedCheckpoint : checkpointFile));
+    }
+
+    private void runTask(SearchTask task) {
+        startTime = System.nanoTime() - (task.state != null ? task.state.elapsedNanos : 0);
+        setCheckBoxesEnabled(false);
+
+        currentTask = task;
+        currentTask.execute();
+
+        timer = new Timer(100, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                long elapsedTime = System.nanoTime() - startTime;
+                elapsedTimeLabel.setText(String.format("Elapsed Time: %.6f s", elapsedTime / 1e9));
+                updateStatistics();
+            }
+        });
+        timer.start();
+    }
+
+    private void resetStatistics() {
+        for (LongAdder counter : counters()) {
+            counter.reset();
+        }
+        currentLocation = null;
+    }
+
+    // In the order a checkpoint stores them
+    private LongAdder[] counters() {
+        return new LongAdder[]{filesScanned, foldersScanned, filesMatched, foldersMatched};
+    }
+
+    // Pushes one snapshot of the worker's counters to the labels; called from the timer on the EDT
+    private void updateStatistics() {
+        long files = filesScanned.sum();
+        long folders = foldersScanned.sum();
+        long matchedFiles = filesMatched.sum();
+        long matchedFolders = foldersMatched.sum();
+        File location = currentLocation;
+
+        filesScannedLabel.setText("Files Scanned: " + files);
+        foldersScannedLabel.setText("Folders Scanned: " + folders);
+        totalScannedLabel.setText("Files and Folders Scanned: " + (files + folders));
+        filesMatchedLabel.setText("Files Matched: " + matchedFiles);
+        foldersMatchedLabel.setText("Folders Matched: " + matchedFolders);
+        totalMatchedLabel.setText("Files and Folders Matched: " + (matchedFiles + matchedFolders));
+        if (location != null) {
+            currentLocationLabel.setText("Current Location: " + location.getAbsolutePath());
+        }
+        SearchCheckpoint state = currentTask != null ? currentTask.state : null;
+        rejectedLabel.setText(state != null ? state.filters.describeRejections() : "");
+    }
+
     private void updateDisplay() {
         tableModel.setRowCount(0); // Clear current display
 
@@ -306,90 +357,83 @@ public class FileExplorerApp extends JFrame {
     }
 
     private class SearchTask extends SwingWorker<List<File>, File> {
-        private final File directory;
-        private final String pattern;
-        private final Pattern regexPattern;
-        private final int currentDepth;
+        private volatile SearchCheckpoint state;  // Null until read from loadFrom
+        private final File loadFrom;
+        private final File saveTo;
+        private volatile boolean pauseRequested = false;
+        private boolean paused = false;
+        private IOException checkpointError;
+
+        public SearchTask(SearchCheckpoint state, File loadFrom, File saveTo) {
+            this.state = state;
+            this.loadFrom = loadFrom;
+            this.saveTo = saveTo;
+        }
 
-        public SearchTask(File directory, String pattern, int currentDepth) {
-            this.directory = directory;
-            this.pattern = pattern;
-            this.regexPattern = Pattern.compile(pattern);
-            this.currentDepth = currentDepth;
+        public void requestPause() {
+            pauseRequested = true;
         }
 
         @Override
         protected List<File> doInBackground() {
-            searchFilesRecursive(directory, currentDepth);
-            return allResults;
-        }
-
-        private void searchFilesRecursive(File directory, int depth) {
-            if (depth > maxRecursionDepth || isCancelled()) {
-                return;
+            if (state == null) {
+                try {
+                    state = SearchCheckpoint.load(loadFrom, counters(), allResults);
+                } catch (IOException e) {
+                    checkpointError = e;
+                    return allResults;
+                }
+                startTime = System.nanoTime() - state.elapsedNanos;
+                publish(allResults.toArray(new File[0]));
             }
+            searchFrontier();
 
-            File[] files = directory.listFiles();
-            if (files != null) {
-                for (File file : files) {
-                    if (isCancelled()) return;
-
-                    currentLocationLabel.setText("Current Location: " + file.getAbsolutePath());
-
-                    if (file.isDirectory()) {
-                        foldersScanned++;
-                        if (depth >= minRecursionDepth) {
-                            Matcher matcher = regexPattern.matcher(file.getName());
-                            if (matcher.find() && isValidDate(file)) {
-                                foldersMatched++;
-                                allResults.add(file);
-                                publish(file);
-                            }
-                        }
-                        if (depth < maxRecursionDepth) {
-                            searchFilesRecursive(file, depth + 1);
-                        }
-                    } else {
-                        filesScanned++;
-                        if (depth >= minRecursionDepth) {
-                            Matcher matcher = regexPattern.matcher(file.getName());
-                            if (matcher.find() && isValidDate(file)) {
-                                filesMatched++;
-                                allResults.add(file);
-                                publish(file);
-                            }
-                        }
+            if (isCancelled()) {
+                return allResults;
+            }
+            if (!state.frontier.isEmpty()) {
+                paused = true;
+                state.elapsedNanos = System.nanoTime() - startTime;
+                if (saveTo != null) {
+                    try {
+                        state.save(saveTo, counters(), allResults);
+                    } catch (IOException e) {
+                        checkpointError = e;
                     }
-
-                    // Update statistics
-                    SwingUtilities.invokeLater(new Runnable() {
-                        @Override
-                        public void run() {
-                            filesScannedLabel.setText("Files Scanned: " + filesScanned);
-                            foldersScannedLabel.setText("Folders Scanned: " + foldersScanned);
-                            totalScannedLabel.setText("Files and Folders Scanned: " + (filesScanned + foldersScanned));
-                            filesMatchedLabel.setText("Files Matched: " + filesMatched);
-                            foldersMatchedLabel.setText("Folders Matched: " + foldersMatched);
-                            totalMatchedLabel.setText("Files and Folders Matched: " + (filesMatched + foldersMatched));
-                        }
-                    });
                 }
+            } else if (saveTo != null) {
+                saveTo.delete(); // Finished; there is nothing left to resume
             }
+            return allResults;
         }
 
-        private boolean isValidDate(File file) {
-            long lastModified = file.lastModified();
-            Date lastModifiedDate = new Date(lastModified);
+        // Depth-first over an explicit stack instead of the call stack, so stopping leaves the walk's
+        // position behind in state.frontier. Stops between two entries; each entry is fully handled or not at all.
+        private void searchFrontier() {
+            Deque<Frame> frontier = state.frontier;
+            FilterPipeline filters = state.filters;
+            while (!frontier.isEmpty() && !isCancelled() && !pauseRequested) {
+                Frame frame = frontier.peek();
+                File file = frame.nextEntry();
+                if (file == null) {
+                    frontier.pop();
+                    continue;
+                }
+                int depth = frame.depth;
+                boolean directory = file.isDirectory();
 
-            if (minDateModified != null && lastModifiedDate.before(minDateModified)) {
-                return false;
-            }
+                currentLocation = file;
 
-            if (maxDateModified != null && lastModifiedDate.after(maxDateModified)) {
-                return false;
+                (directory ? foldersScanned : filesScanned).increment();
+                if (filters.accept(file, file.getName(), directory, depth)) {
+                    (directory ? foldersMatched : filesMatched).increment();
+                    allResults.add(file);
+                    publish(file);
+                }
+                if (directory && depth < state.maxRecursionDepth) {
+                    frontier.push(new Frame(file, depth + 1));
+                }
             }
-
-            return true;
         }
 
         @Override
@@ -408,8 +452,333 @@ public class FileExplorerApp extends JFrame {
             } catch (Exception e) {
                 e.printStackTrace();
             } finally {
-                timer.stop();
-                setCheckBoxesEnabled(true);
+                // A task replaced by a newer search must not stop the newer one's timer
+                if (this == currentTask) {
+                    timer.stop();
+                    updateStatistics();
+                    setCheckBoxesEnabled(true);
+                    checkpoint = paused ? state : null;
+                    isPaused = paused;
+                    if (checkpointError != null) {
+                        JOptionPane.showMessageDialog(FileExplorerApp.this, "Checkpoint " + (state == null ? "could not be read: " : "could not be saved: ")
+                                + checkpointError.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                    }
+                }
+            }
+        }
+    }
+
+    // One directory on the traversal stack and how far into it the search has got. Entries are visited in name
+    // order so the position can be saved as the last name visited; listing the directory again after a restart
+    // then lands in the same place even if entries were added or removed meanwhile.
+    private static class Frame {
+        final File directory;
+        final int depth;
+        private File[] entries;         // Listed when the frame is first visited
+        private int next;
+        private String visitedThrough;  // From a saved checkpoint, until the directory is listed again
+
+        Frame(File directory, int depth) {
+            this.directory = directory;
+            this.depth = depth;
+        }
+
+        // Null once every entry has been visited
+        File nextEntry() {
+            if (entries == null) {
+                entries = directory.listFiles();
+                if (entries == null) {
+                    entries = new File[0];
+                }
+                Arrays.sort(entries);
+                if (visitedThrough != null) {
+                    int index = Arrays.binarySearch(entries, new File(directory, visitedThrough));
+                    next = index >= 0 ? index + 1 : -index - 1;
+                }
+            }
+            return next < entries.length ? entries[next++] : null;
+        }
+
+        String lastVisited() {
+            if (entries == null) {
+                return visitedThrough;
+            }
+            return next == 0 ? null : entries[next - 1].getName();
+        }
+    }
+
+    // What a paused search needs to carry on: its parameters, the directories it is partway through and the
+    // time spent so far. Results and counters stay in allResults and the counter fields and are saved alongside.
+    private static class SearchCheckpoint {
+        private static final int MAGIC = 0x46454332; // "FEC2"
+
+        final File root;
+        final String pattern;
+        final String commands;
+        final int maxRecursionDepth;
+        final FilterPipeline filters;
+        final Deque<Frame> frontier = new ArrayDeque<>();  // Top is the directory being walked
+        long elapsedNanos;
+
+        SearchCheckpoint(File root, String pattern, String commands, int maxRecursionDepth) {
+            this.root = root;
+            this.pattern = pattern;
+            this.commands = commands;
+            this.maxRecursionDepth = maxRecursionDepth;
+            this.filters = FilterPipeline.compile(pattern, commands);
+            if (maxRecursionDepth >= 0) {
+                frontier.push(new Frame(root, 0));
+            }
+        }
+
+        // Written to a temporary file first so a crash while saving leaves the previous checkpoint intact
+        void save(File file, LongAdder[] counters, List<File> results) throws IOException {
+            File temporary = new File(file.getPath() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)))) {
+                out.writeInt(MAGIC);
+                out.writeUTF(root.getPath());
+                out.writeUTF(pattern);
+                out.writeUTF(commands);
+                out.writeInt(maxRecursionDepth);
+                out.writeLong(elapsedNanos);
+                for (LongAdder counter : counters) {
+                    out.writeLong(counter.sum());
+                }
+                long[] rejections = filters.getRejections();
+                out.writeInt(rejections.length);
+                for (long rejected : rejections) {
+                    out.writeLong(rejected);
+                }
+
+                out.writeInt(frontier.size());
+                Iterator<Frame> bottomUp = frontier.descendingIterator();
+                while (bottomUp.hasNext()) {
+                    Frame frame = bottomUp.next();
+                    out.writeUTF(frame.directory.getPath());
+                    out.writeInt(frame.depth);
+                    String lastVisited = frame.lastVisited();
+                    out.writeBoolean(lastVisited != null);
+                    if (lastVisited != null) {
+                        out.writeUTF(lastVisited);
+                    }
+                }
+
+                out.writeInt(results.size());
+                for (File result : results) {
+                    out.writeUTF(result.getPath());
+                }
+            }
+            Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        // Restores the counters and appends the saved results to results
+        static SearchCheckpoint load(File file, LongAdder[] counters, List<File> results) throws IOException {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                if (in.readInt() != MAGIC) {
+                    throw new IOException(file + " is not a search checkpoint");
+                }
+                SearchCheckpoint checkpoint = new SearchCheckpoint(new File(in.readUTF()), in.readUTF(), in.readUTF(), in.readInt());
+                checkpoint.elapsedNanos = in.readLong();
+                for (LongAdder counter : counters) {
+                    counter.add(in.readLong());
+                }
+                long[] rejections = new long[in.readInt()];
+                for (int i = 0; i < rejections.length; i++) {
+                    rejections[i] = in.readLong();
+                }
+                checkpoint.filters.addRejections(rejections);
+
+                checkpoint.frontier.clear();
+                int frames = in.readInt();
+                for (int i = 0; i < frames; i++) {
+                    Frame frame = new Frame(new File(in.readUTF()), in.readInt());
+                    frame.visitedThrough = in.readBoolean() ? in.readUTF() : null;
+                    checkpoint.frontier.push(frame);
+                }
+
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    results.add(new File(in.readUTF()));
+                }
+                return checkpoint;
+            }
+        }
+    }
+
+    // One test of the filter pipeline. Stages are ordered by cost so the cheap ones reject what they can before
+    // the regex or a stat call is reached; each counts what it rejects. No stage allocates.
+    private abstract static class FilterStage {
+        final String name;
+        final int cost;  // 0 uses what is in hand, 1-2 look at the name, 3 runs the regex, 4 costs a stat call
+        final LongAdder rejected = new LongAdder();
+
+        FilterStage(String name, int cost) {
+            this.name = name;
+            this.cost = cost;
+        }
+
+        abstract boolean accept(File file, String fileName, boolean directory, int depth);
+    }
+
+    // The filters of the command field, compiled into stages that run cheapest first and stop at the first
+    // rejection. Options that are not given add no stage.
+    private static class FilterPipeline {
+        private final FilterStage[] stages;
+
+        private FilterPipeline(List<FilterStage> stages) {
+            stages.sort(new Comparator<FilterStage>() {
+                @Override
+                public int compare(FilterStage a, FilterStage b) {
+                    return Integer.compare(a.cost, b.cost);  // Stable, so equal costs keep their order
+                }
+            });
+            this.stages = stages.toArray(new FilterStage[0]);
+        }
+
+        // Options: -minRecursionDepth=N -minNameLength=N -maxNameLength=N -ext=a,b -minSize=BYTES -maxSize=BYTES
+        // --mindateModified=DATE --maxdateModified=DATE. Malformed values are ignored, as before.
+        static FilterPipeline compile(String pattern, String commands) {
+            int minRecursionDepth = 0;
+            int minNameLength = 0;
+            int maxNameLength = Integer.MAX_VALUE;
+            List<String> extensions = new ArrayList<>();
+            long minSize = Long.MIN_VALUE;
+            long maxSize = Long.MAX_VALUE;
+            long minDateModified = Long.MIN_VALUE;
+            long maxDateModified = Long.MAX_VALUE;
+            SimpleDateFormat isoDateFormat = new SimpleDateFormat(ISO_DATE_FORMAT);
+
+            for (String command : commands.split("\\s+")) {
+                try {
+                    if (command.startsWith("-minRecursionDepth=")) {
+                        minRecursionDepth = Integer.parseInt(command.substring(19));
+                    } else if (command.startsWith("-minNameLength=")) {
+                        minNameLength = Integer.parseInt(command.substring(15));
+                    } else if (command.startsWith("-maxNameLength=")) {
+                        maxNameLength = Integer.parseInt(command.substring(15));
+                    } else if (command.startsWith("-ext=")) {
+                        for (String extension : command.substring(5).split(",")) {
+                            if (!extension.isEmpty()) {
+                                extensions.add(extension.startsWith(".") ? extension : "." + extension);
+                            }
+                        }
+                    } else if (command.startsWith("-minSize=")) {
+                        minSize = Long.parseLong(command.substring(9));
+                    } else if (command.startsWith("-maxSize=")) {
+                        maxSize = Long.parseLong(command.substring(9));
+                    } else if (command.startsWith("--mindateModified=")) {
+                        minDateModified = isoDateFormat.parse(command.substring(18)).getTime();
+                    } else if (command.startsWith("--maxdateModified=")) {
+                        maxDateModified = isoDateFormat.parse(command.substring(18)).getTime();
+                    }
+                } catch (NumberFormatException | ParseException e) {
+                    // Keep the default
+                }
+            }
+
+            List<FilterStage> stages = new ArrayList<>();
+            if (minRecursionDepth > 0) {
+                final int minDepth = minRecursionDepth;
+                stages.add(new FilterStage("depth", 0) {
+                    @Override
+                    boolean accept(File file, String fileName, boolean directory, int depth) {
+                        return depth >= minDepth;
+                    }
+                });
+            }
+            if (minNameLength > 0 || maxNameLength < Integer.MAX_VALUE) {
+                final int minLength = minNameLength;
+                final int maxLength = maxNameLength;
+                stages.add(new FilterStage("name length", 1) {
+                    @Override
+                    boolean accept(File file, String fileName, boolean directory, int depth) {
+                        return fileName.length() >= minLength && fileName.length() <= maxLength;
+                    }
+                });
+            }
+            if (!extensions.isEmpty()) {
+                final String[] suffixes = extensions.toArray(new String[0]);
+                stages.add(new FilterStage("extension", 2) {
+                    @Override
+                    boolean accept(File file, String fileName, boolean directory, int depth) {
+                        for (String suffix : suffixes) {
+                            if (fileName.regionMatches(true, fileName.length() - suffix.length(), suffix, 0, suffix.length())) {
+                                return true;
+                            }
+                        }
+                        return false;
+                    }
+                });
+            }
+            if (!pattern.isEmpty()) {
+                // Only the search thread runs the pipeline, so one Matcher is reset per name
+                final Matcher matcher = Pattern.compile(pattern).matcher("");
+                stages.add(new FilterStage("regex", 3) {
+                    @Override
+                    boolean accept(File file, String fileName, boolean directory, int depth) {
+                        return matcher.reset(fileName).find();
+                    }
+                });
+            }
+            if (minSize > Long.MIN_VALUE || maxSize < Long.MAX_VALUE) {
+                final long min = minSize;
+                final long max = maxSize;
+                stages.add(new FilterStage("size", 4) {
+                    @Override
+                    boolean accept(File file, String fileName, boolean directory, int depth) {
+                        if (directory) {
+                            return true;  // A folder's length says nothing about its contents
+                        }
+                        long size = file.length();
+                        return size >= min && size <= max;
+                    }
+                });
+            }
+            if (minDateModified > Long.MIN_VALUE || maxDateModified < Long.MAX_VALUE) {
+                final long min = minDateModified;
+                final long max = maxDateModified;
+                stages.add(new FilterStage("date modified", 4) {
+                    @Override
+                    boolean accept(File file, String fileName, boolean directory, int depth) {
+                        long lastModified = file.lastModified();
+                        return lastModified >= min && lastModified <= max;
+                    }
+                });
+            }
+            return new FilterPipeline(stages);
+        }
+
+        boolean accept(File file, String fileName, boolean directory, int depth) {
+            for (FilterStage stage : stages) {
+                if (!stage.accept(file, fileName, directory, depth)) {
+                    stage.rejected.increment();
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Stage by stage, in the order they run
+        String describeRejections() {
+            StringBuilder text = new StringBuilder("Rejected by");
+            for (int i = 0; i < stages.length; i++) {
+                text.append(i == 0 ? " " : ", ").append(stages[i].name).append(": ").append(stages[i].rejected.sum());
+            }
+            return stages.length == 0 ? "" : text.toString();
+        }
+
+        long[] getRejections() {
+            long[] rejections = new long[stages.length];
+            for (int i = 0; i < stages.length; i++) {
+                rejections[i] = stages[i].rejected.sum();
+            }
+            return rejections;
+        }
+
+        // Counts saved with a checkpoint; the same commands compile to the same stages
+        void addRejections(long[] rejections) {
+            for (int i = 0; i < rejections.length && i < stages.length; i++) {
+                stages[i].rejected.add(rejections[i]);
             }
         }
     }
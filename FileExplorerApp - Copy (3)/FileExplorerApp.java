@@ -4,8 +4,11 @@ import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.File;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.swing.Timer;
@@ -23,7 +26,8 @@ public class FileExplorerApp extends JFrame {
     private int maxRecursionDepth = 0;  // Default recursion depth to 0
     private int minRecursionDepth = 0;
     private int maxHorizontal = Integer.MAX_VALUE;
-    private String startPrefix = null;
+    private String startPrefix = null;  // A name: every directory starts at its first entry at or after it
+    private String[] startPath = null;  // A path under the directory, split into names: the crawl starts there
     private SearchTask currentTask;
     private Timer timer;
     private long startTime;
@@ -37,10 +41,11 @@ public class FileExplorerApp extends JFrame {
     private JLabel elapsedTimeLabel;
     private JLabel currentLocationLabel;
 
-    private int filesScanned = 0;
-    private int foldersScanned = 0;
-    private int filesMatched = 0;
-    private int foldersMatched = 0;
+    private final LongAdder filesScanned = new LongAdder();
+    private final LongAdder foldersScanned = new LongAdder();
+    private final LongAdder filesMatched = new LongAdder();
+    private final LongAdder foldersMatched = new LongAdder();
+    private volatile File currentLocation;
 
     public FileExplorerApp() {
         setTitle("File Explorer Application");
@@ -210,18 +215,51 @@ public class FileExplorerApp extends JFrame {
         startPrefix = startPrefixField.getText().trim();
     }
 
+    // A start prefix with a separator in it is a path to resume from, absolute or relative to the directory.
+    // Returns false if it is outside the directory.
+    private boolean resolveStartPath(File directory) {
+        startPath = null;
+        if (startPrefix.indexOf('/') < 0 && startPrefix.indexOf(File.separatorChar) < 0) {
+            return true;
+        }
+        File start = new File(startPrefix);
+        if (!start.isAbsolute()) {
+            start = new File(directory, startPrefix);
+        }
+        Path root = directory.getAbsoluteFile().toPath().normalize();
+        Path startAt = start.getAbsoluteFile().toPath().normalize();
+        if (!startAt.startsWith(root)) {
+            return false;
+        }
+        Path relative = root.relativize(startAt);
+        startPath = new String[relative.getNameCount()];
+        for (int i = 0; i < startPath.length; i++) {
+            startPath[i] = relative.getName(i).toString();
+        }
+        if (startPath.length == 1 && startPath[0].isEmpty()) {
+            startPath = new String[0];  // The directory itself
+        }
+        startPrefix = null;
+        return true;
+    }
+
     private void startSearch() {
         String pattern = searchPatternField.getText();
         String directoryPath = directoryField.getText();
         File directory = new File(directoryPath);
 
         if (directory.exists() && directory.isDirectory()) {
+            if (!resolveStartPath(directory)) {
+                JOptionPane.showMessageDialog(this, "Start path is not inside the directory!", "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
             tableModel.setRowCount(0); // Clear previous results
             allResults.clear(); // Clear previous allResults
-            filesScanned = 0;
-            foldersScanned = 0;
-            filesMatched = 0;
-            foldersMatched = 0;
+            filesScanned.reset();
+            foldersScanned.reset();
+            filesMatched.reset();
+            foldersMatched.reset();
+            currentLocation = null;
             startTime = System.nanoTime();
 
             currentTask = new SearchTask(directory, pattern, 0);
@@ -232,6 +270,7 @@ public class FileExplorerApp extends JFrame {
                 public void actionPerformed(ActionEvent e) {
                     long elapsedTime = System.nanoTime() - startTime;
                     elapsedTimeLabel.setText(String.format("Elapsed Time: %.6f s", elapsedTime / 1e9));
+                    updateStatistics();
                 }
             });
             timer.start();
@@ -240,6 +279,24 @@ public class FileExplorerApp extends JFrame {
         }
     }
 
+    private void updateStatistics() {
+        long files = filesScanned.sum();
+        long folders = foldersScanned.sum();
+        long matchedFiles = filesMatched.sum();
+        long matchedFolders = foldersMatched.sum();
+        File location = currentLocation;
+
+        filesScannedLabel.setText("Files Scanned: " + files);
+        foldersScannedLabel.setText("Folders Scanned: " + folders);
+        totalScannedLabel.setText("Files and Folders Scanned: " + (files + folders));
+        filesMatchedLabel.setText("Files Matched: " + matchedFiles);
+        foldersMatchedLabel.setText("Folders Matched: " + matchedFolders);
+        totalMatchedLabel.setText("Files and Folders Matched: " + (matchedFiles + matchedFolders));
+        if (location != null) {
+            currentLocationLabel.setText("Current Location: " + location.getAbsolutePath());
+        }
+    }
+
     private void updateDisplay() {
         tableModel.setRowCount(0); // Clear current display
 
@@ -267,63 +324,64 @@ public class FileExplorerApp extends JFrame {
 
         @Override
         protected List<File> doInBackground() {
-            searchFilesRecursive(directory, currentDepth);
+            searchFilesRecursive(directory, currentDepth, 0);
             return allResults;
         }
 
-        private void searchFilesRecursive(File directory, int depth) {
+        // Entries are visited in name order, which makes the start prefix a position: each directory is sorted
+        // and binary-searched to its first entry at or after the prefix instead of comparing every name.
+        // startIndex is how far down startPath this directory lies; past its end the directory is searched whole.
+        private void searchFilesRecursive(File directory, int depth, int startIndex) {
             if (depth > maxRecursionDepth || isCancelled()) {
                 return;
             }
 
             File[] files = directory.listFiles();
             if (files != null) {
-                boolean startSearching = startPrefix == null || startPrefix.isEmpty();
-                for (File file : files) {
+                Arrays.sort(files);
+                String seek = startPath != null ? (startIndex < startPath.length ? startPath[startIndex] : null) : startPrefix;
+                int first = 0;
+                boolean throughStartPath = false;  // files[first] is a directory on startPath above the start point
+                if (seek != null && !seek.isEmpty()) {
+                    int found = Arrays.binarySearch(files, new File(directory, seek));
+                    first = found >= 0 ? found : -found - 1;
+                    throughStartPath = found >= 0 && startPath != null && startIndex < startPath.length - 1;
+                }
+                for (int i = first; i < files.length; i++) {
+                    File file = files[i];
                     if (isCancelled()) return;
 
-                    if (!startSearching && file.getName().compareTo(startPrefix) >= 0) {
-                        startSearching = true;
+                    if (i == first && throughStartPath) {
+                        // Comes before the start point itself; only the part of its subtree from there on is searched
+                        if (file.isDirectory()) {
+                            searchFilesRecursive(file, depth + 1, startIndex + 1);
+                        }
+                        continue;
                     }
 
-                    if (startSearching) {
-                        currentLocationLabel.setText("Current Location: " + file.getAbsolutePath());
+                    currentLocation = file;
 
-                        if (file.isDirectory()) {
-                            foldersScanned++;
-                            if (depth >= minRecursionDepth) {
-                                Matcher matcher = regexPattern.matcher(file.getName());
-                                if (matcher.find()) {
-                                    foldersMatched++;
-                                    allResults.add(file);
-                                    publish(file);
-                                }
-                            }
-                            searchFilesRecursive(file, depth + 1);
-                        } else {
-                            filesScanned++;
-                            if (depth >= minRecursionDepth) {
-                                Matcher matcher = regexPattern.matcher(file.getName());
-                                if (matcher.find()) {
-                                    filesMatched++;
-                                    allResults.add(file);
-                                    publish(file);
-                                }
+                    if (file.isDirectory()) {
+                        foldersScanned.increment();
+                        if (depth >= minRecursionDepth) {
+                            Matcher matcher = regexPattern.matcher(file.getName());
+                            if (matcher.find()) {
+                                foldersMatched.increment();
+                                allResults.add(file);
+                                publish(file);
                             }
                         }
-
-                        // Update statistics
-                        SwingUtilities.invokeLater(new Runnable() {
-                            @Override
-                            public void run() {
-                                filesScannedLabel.setText("Files Scanned: " + filesScanned);
-                                foldersScannedLabel.setText("Folders Scanned: " + foldersScanned);
-                                totalScannedLabel.setText("Files and Folders Scanned: " + (filesScanned + foldersScanned));
-                                filesMatchedLabel.setText("Files Matched: " + filesMatched);
-                                foldersMatchedLabel.setText("Folders Matched: " + foldersMatched);
-                                totalMatchedLabel.setText("Files and Folders Matched: " + (filesMatched + foldersMatched));
+                        searchFilesRecursive(file, depth + 1, Integer.MAX_VALUE);
+                    } else {
+                        filesScanned.increment();
+                        if (depth >= minRecursionDepth) {
+                            Matcher matcher = regexPattern.matcher(file.getName());
+                            if (matcher.find()) {
+                                filesMatched.increment();
+                                allResults.add(file);
+                                publish(file);
                             }
-                        });
+                        }
                     }
                 }
             }
@@ -342,6 +400,7 @@ public class FileExplorerApp extends JFrame {
                 e.printStackTrace();
             } finally {
                 timer.stop();
+                updateStatistics();
             }
         }
     }
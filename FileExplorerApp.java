@@ -1,12 +1,12 @@
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableRowSorter;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.File;
-import java.util.ArrayList;
+import java.io.IOException;
 import java.util.List;
-import java.util.regex.Matcher;
+import java.util.concurrent.ExecutionException;
 import java.util.regex.Pattern;
 
 public class FileExplorerApp extends JFrame {
@@ -16,11 +16,21 @@ public class FileExplorerApp extends JFrame {
     private JCheckBox folderCheckBox;
     private JTextField commandField;
     private JTable resultTable;
-    private DefaultTableModel tableModel;
-    private List<File> allResults;
-    private int maxRecursionDepth = Integer.MAX_VALUE;
-    private int minRecursionDepth = 0;
-    private int maxHorizontal = Integer.MAX_VALUE;
+    private ResultTableModel tableModel;
+    private ResultStore allResults;
+    private SearchOptions options = new SearchOptions();
+
+    private JLabel filesScannedLabel;
+    private JLabel foldersScannedLabel;
+    private JLabel totalScannedLabel;
+    private JLabel filesMatchedLabel;
+    private JLabel foldersMatchedLabel;
+    private JLabel totalMatchedLabel;
+    private JLabel contentLabel;
+    private JLabel duplicatesLabel;
+    private JLabel exportLabel;
+    private SearchStats stats = new SearchStats();
+    private Timer statsTimer;
 
     public FileExplorerApp() {
         setTitle("File Explorer Application");
@@ -28,7 +38,7 @@ public class FileExplorerApp extends JFrame {
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLocationRelativeTo(null);
 
-        allResults = new ArrayList<>();
+        allResults = new ResultStore();
 
         JPanel panel = new JPanel();
         panel.setLayout(new GridLayout(6, 1));
@@ -73,6 +83,35 @@ public class FileExplorerApp extends JFrame {
         });
         panel.add(searchButton);
 
+        // Statistics display, refreshed from the engine's counters by statsTimer
+        JPanel statsPanel = new JPanel(new GridLayout(3, 3));
+        filesScannedLabel = new JLabel("Files Scanned: 0");
+        foldersScannedLabel = new JLabel("Folders Scanned: 0");
+        totalScannedLabel = new JLabel("Files and Folders Scanned: 0");
+        filesMatchedLabel = new JLabel("Files Matched: 0");
+        foldersMatchedLabel = new JLabel("Folders Matched: 0");
+        totalMatchedLabel = new JLabel("Files and Folders Matched: 0");
+        contentLabel = new JLabel("");
+        duplicatesLabel = new JLabel("");
+        exportLabel = new JLabel("");
+        statsPanel.add(filesScannedLabel);
+        statsPanel.add(foldersScannedLabel);
+        statsPanel.add(totalScannedLabel);
+        statsPanel.add(filesMatchedLabel);
+        statsPanel.add(foldersMatchedLabel);
+        statsPanel.add(totalMatchedLabel);
+        statsPanel.add(contentLabel);
+        statsPanel.add(duplicatesLabel);
+        statsPanel.add(exportLabel);
+        panel.add(statsPanel);
+
+        statsTimer = new Timer(100, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                updateStats();
+            }
+        });
+
         // Checkbox action listeners
         fileCheckBox.addActionListener(new ActionListener() {
             @Override
@@ -88,8 +127,7 @@ public class FileExplorerApp extends JFrame {
         });
 
         // Result table
-        String[] columnNames = {"Absolute Path"};
-        tableModel = new DefaultTableModel(columnNames, 0);
+        tableModel = new ResultTableModel(allResults, fileCheckBox.isSelected(), folderCheckBox.isSelected());
         resultTable = new JTable(tableModel);
 
         JScrollPane scrollPane = new JScrollPane(resultTable);
@@ -100,32 +138,9 @@ public class FileExplorerApp extends JFrame {
     }
 
     private void parseCommands() {
-        String commands = commandField.getText();
-        maxRecursionDepth = Integer.MAX_VALUE;
-        minRecursionDepth = 0;
-        maxHorizontal = Integer.MAX_VALUE;
-
-        String[] commandArray = commands.split("\\s+");
-        for (String command : commandArray) {
-            if (command.startsWith("-maxRecursionDepth=")) {
-                try {
-                    maxRecursionDepth = Integer.parseInt(command.substring(19));
-                } catch (NumberFormatException e) {
-                    maxRecursionDepth = Integer.MAX_VALUE;
-                }
-            } else if (command.startsWith("-minRecursionDepth=")) {
-                try {
-                    minRecursionDepth = Integer.parseInt(command.substring(19));
-                } catch (NumberFormatException e) {
-                    minRecursionDepth = 0;
-                }
-            } else if (command.startsWith("-maxHorizontal=")) {
-                try {
-                    maxHorizontal = Integer.parseInt(command.substring(15));
-                } catch (NumberFormatException e) {
-                    maxHorizontal = Integer.MAX_VALUE;
-                }
-            }
+        options = SearchOptions.parse(commandField.getText());
+        for (String problem : options.getProblems()) {
+            JOptionPane.showMessageDialog(this, problem, "Error", JOptionPane.ERROR_MESSAGE);
         }
     }
 
@@ -135,91 +150,118 @@ public class FileExplorerApp extends JFrame {
         File directory = new File(directoryPath);
 
         if (directory.exists() && directory.isDirectory()) {
-            tableModel.setRowCount(0); // Clear previous results
-            allResults.clear(); // Clear previous allResults
-            SearchTask task = new SearchTask(directory, pattern, 0);
+            tableModel.clear(); // Clear previous results and allResults
+            stats = new SearchStats();
+            updateStats();
+            MultiPatternMatcher patternList = options.createPatternList();
+            tableModel.setPatterns(patternList);
+            tableModel.setShowLines(options.hasContentPattern());
+            tableModel.setShowDuplicates(options.isFindDuplicates());
+            tableModel.setShowTotals(options.isDirectorySizes());
+            updateSorter();
+            SearchTask task = new SearchTask(directory, pattern, patternList);
             task.execute();
+            statsTimer.restart();
         } else {
             JOptionPane.showMessageDialog(this, "Invalid directory!", "Error", JOptionPane.ERROR_MESSAGE);
         }
     }
 
-    private void updateDisplay() {
-        tableModel.setRowCount(0); // Clear current display
+    private void updateStats() {
+        long filesScanned = stats.getFilesScanned();
+        long foldersScanned = stats.getFoldersScanned();
+        long filesMatched = stats.getFilesMatched();
+        long foldersMatched = stats.getFoldersMatched();
+        filesScannedLabel.setText("Files Scanned: " + filesScanned);
+        foldersScannedLabel.setText("Folders Scanned: " + foldersScanned);
+        totalScannedLabel.setText("Files and Folders Scanned: " + (filesScanned + foldersScanned));
+        filesMatchedLabel.setText("Files Matched: " + filesMatched);
+        foldersMatchedLabel.setText("Folders Matched: " + foldersMatched);
+        totalMatchedLabel.setText("Files and Folders Matched: " + (filesMatched + foldersMatched));
+        if (options.hasContentPattern()) {
+            contentLabel.setText("Content Matched: " + stats.getContentFilesMatched() + " files, "
+                    + stats.getContentBytesSearched() / (1024 * 1024) + " MB searched, "
+                    + stats.getBinaryFilesSkipped() + " binary skipped");
+        } else {
+            contentLabel.setText("");
+        }
+        if (options.isFindDuplicates()) {
+            duplicatesLabel.setText("Duplicate Groups: " + stats.getDuplicateGroups() + ", Reclaimable: "
+                    + stats.getReclaimableBytes() / (1024 * 1024) + " MB (" + stats.getDuplicateBytesRead() / (1024 * 1024) + " MB read)");
+        } else {
+            duplicatesLabel.setText("");
+        }
+        if (options.getExportFile() != null) {
+            exportLabel.setText("Exported: " + stats.getResultsExported() + " to " + options.getExportFile().getFileName());
+        } else {
+            exportLabel.setText("");
+        }
+    }
 
-        for (File file : allResults) {
-            if (file.isFile() && fileCheckBox.isSelected()) {
-                tableModel.addRow(new Object[]{file.getAbsolutePath()});
-            } else if (file.isDirectory() && folderCheckBox.isSelected()) {
-                tableModel.addRow(new Object[]{file.getAbsolutePath()});
-            }
+    // Rebuilt whenever the columns change; only the numeric columns sort
+    private void updateSorter() {
+        TableRowSorter<ResultTableModel> sorter = new TableRowSorter<>(tableModel);
+        for (int column = 0; column < tableModel.getColumnCount(); column++) {
+            sorter.setSortable(column, tableModel.isSortable(column));
         }
+        resultTable.setRowSorter(sorter);
+    }
+
+    private void updateDisplay() {
+        tableModel.setFilter(fileCheckBox.isSelected(), folderCheckBox.isSelected());
     }
 
-    private class SearchTask extends SwingWorker<List<File>, File> {
+    private class SearchTask extends SwingWorker<ResultStore, SearchResult> {
         private final File directory;
-        private final String pattern;
         private final Pattern regexPattern;
-        private final int currentDepth;
+        private final MultiPatternMatcher patternList;
+        private final SearchStats taskStats = stats;
+        private final SearchOptions taskOptions = options;
 
-        public SearchTask(File directory, String pattern, int currentDepth) {
+        public SearchTask(File directory, String pattern, MultiPatternMatcher patternList) {
             this.directory = directory;
-            this.pattern = pattern;
             this.regexPattern = Pattern.compile(pattern);
-            this.currentDepth = currentDepth;
+            this.patternList = patternList;
         }
 
         @Override
-        protected List<File> doInBackground() {
-            searchFilesRecursive(directory, currentDepth);
-            return allResults;
-        }
-
-        private void searchFilesRecursive(File directory, int depth) {
-            if (depth > maxRecursionDepth) {
-                return;
-            }
-
-            File[] files = directory.listFiles();
-            if (files != null) {
-                List<File> matchedFiles = new ArrayList<>();
-                for (File file : files) {
-                    Matcher matcher = regexPattern.matcher(file.getName());
-                    if (matcher.find() && depth >= minRecursionDepth) {
-                        matchedFiles.add(file);
-                    }
-                    if (file.isDirectory()) {
-                        searchFilesRecursive(file, depth + 1);
-                    }
+        protected ResultStore doInBackground() throws IOException {
+            SearchCriteria criteria = taskOptions.createCriteria(regexPattern, patternList);
+            SearchSink sink = new SearchSink() {
+                @Override
+                public void accept(SearchResult result) {
+                    publish(result);
                 }
 
-                int count = 0;
-                for (File file : matchedFiles) {
-                    if (count >= maxHorizontal) {
-                        break;
-                    }
-                    allResults.add(file);
-                    publish(file);
-                    count++;
+                @Override
+                public boolean isCancelled() {
+                    return SearchTask.this.isCancelled();
                 }
-            }
+            };
+            taskOptions.runSearch(directory.toPath(), criteria, sink, taskStats);
+            return allResults;
         }
 
         @Override
-        protected void process(List<File> chunks) {
-            for (File file : chunks) {
-                if ((file.isFile() && fileCheckBox.isSelected()) || (file.isDirectory() && folderCheckBox.isSelected())) {
-                    tableModel.addRow(new Object[]{file.getAbsolutePath()});
-                }
-            }
+        protected void process(List<SearchResult> chunks) {
+            tableModel.addAll(chunks);
         }
 
         @Override
         protected void done() {
             try {
                 get(); // Ensure any exceptions are thrown
-            } catch (Exception e) {
-                e.printStackTrace();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                String message = cause instanceof IOException ? cause.getMessage() : cause.toString();
+                JOptionPane.showMessageDialog(FileExplorerApp.this, "Search failed: " + message, "Error", JOptionPane.ERROR_MESSAGE);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt(); // Cannot happen once the task is done
+            } finally {
+                if (taskStats == stats) { // A newer search owns the timer otherwise
+                    statsTimer.stop();
+                }
+                updateStats();
             }
         }
     }
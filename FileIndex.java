@@ -0,0 +1,701 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+// Persistent filename index of one root directory, kept under ~/.file-utilities/index.
+// Entries are stored in walk order, so a parent always comes before its children, as parallel primitive
+// arrays; names are UTF-8 in one shared byte arena and only decoded for the entries a query returns.
+public class FileIndex {
+    // Flags per entry: DIRECTORY, REGULAR_FILE, ASCII_NAME, and DELETED for tombstones left by IndexMaintainer
+    public static final int FORMAT_VERSION = 1;
+    private static final int MAGIC = 0x46494458; // "FIDX"
+    private static final byte DIRECTORY = 1;
+    private static final byte ASCII_NAME = 2;
+    private static final byte DELETED = 4;
+    private static final byte REGULAR_FILE = 8;
+    private static final int QUERY_CHUNK = 1 << 16;
+
+    // Indexes already loaded in this process, by normalized root
+    private static final Map<Path, FileIndex> loadedIndexes = new HashMap<>();
+
+    private final Path root;
+    private long builtAt;
+    private int size;
+    private int[] parent = new int[1024]; // -1 for entries directly under root
+    private int[] depth = new int[1024];
+    private byte[] flags = new byte[1024];
+    private long[] fileSize = new long[1024];
+    private long[] lastModified = new long[1024];
+    private int[] nameStart = new int[1024];
+    private byte[] names = new byte[16 * 1024];
+    private int namesLength;
+    private int deletedCount;
+    // Queries and saves read under the read lock; IndexMaintainer mutates under the write lock
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Accepts or rejects one entry; a query asks its Supplier for one filter per worker thread
+    public interface EntryFilter {
+        boolean accept(int id, CharSequence name);
+    }
+
+    // Told about every directory addTree adds, so the caller can watch it
+    public interface DirectoryCallback {
+        void added(int id, Path directory);
+    }
+
+    private FileIndex(Path root) {
+        this.root = root;
+    }
+
+    // Returns the index for root, loading it from disk or crawling the tree when there is none yet
+    public static FileIndex forRoot(Path root, boolean rebuild) throws IOException {
+        return forRoot(root, rebuild, null);
+    }
+
+    // progress, if not null, is told about every directory a crawl adds
+    public static synchronized FileIndex forRoot(Path root, boolean rebuild, DirectoryCallback progress) throws IOException {
+        Path key = root.toAbsolutePath().normalize();
+        FileIndex index = rebuild ? null : loadedIndexes.get(key);
+        if (index == null && !rebuild) {
+            index = load(key);
+        }
+        if (index == null) {
+            // The old maintainer must not save its stale index over the one written here
+            IndexMaintainer.discard(key);
+            index = build(key, progress);
+            index.save();
+        }
+        loadedIndexes.put(key, index);
+        return index;
+    }
+
+    public static FileIndex build(Path root) throws IOException {
+        return build(root, null);
+    }
+
+    public static FileIndex build(Path root, DirectoryCallback progress) throws IOException {
+        FileIndex index = new FileIndex(root);
+        index.addTree(root, -1, progress);
+        index.builtAt = System.currentTimeMillis();
+        return index;
+    }
+
+    // Walks start (already in the index as startId, or the root as -1) and appends everything below it
+    public void addTree(Path start, int startId, DirectoryCallback callback) throws IOException {
+        lock.writeLock().lock();
+        try {
+            Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+                private final Deque<Integer> openDirectories = new ArrayDeque<>();
+
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    if (openDirectories.isEmpty()) {
+                        openDirectories.push(startId);
+                    } else {
+                        int id = add(openDirectories.peek(), dir.getFileName().toString(), attrs);
+                        openDirectories.push(id);
+                        if (callback != null) {
+                            callback.added(id, dir);
+                        }
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (!openDirectories.isEmpty()) {
+                        add(openDirectories.peek(), file.getFileName().toString(), attrs);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+                    openDirectories.pop();
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int add(int parentId, String name, BasicFileAttributes attributes) {
+        lock.writeLock().lock();
+        try {
+            return append(parentId, name, attributes);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int append(int parentId, String name, BasicFileAttributes attributes) {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        if (size == parent.length) {
+            int capacity = size * 2;
+            parent = Arrays.copyOf(parent, capacity);
+            depth = Arrays.copyOf(depth, capacity);
+            flags = Arrays.copyOf(flags, capacity);
+            fileSize = Arrays.copyOf(fileSize, capacity);
+            lastModified = Arrays.copyOf(lastModified, capacity);
+            nameStart = Arrays.copyOf(nameStart, capacity);
+        }
+        if (namesLength + nameBytes.length > names.length) {
+            names = Arrays.copyOf(names, Math.max(names.length * 2, namesLength + nameBytes.length));
+        }
+
+        int id = size++;
+        parent[id] = parentId;
+        depth[id] = parentId < 0 ? 0 : depth[parentId] + 1;
+        flags[id] = (byte) ((attributes.isDirectory() ? DIRECTORY : 0) | (attributes.isRegularFile() ? REGULAR_FILE : 0)
+                | (nameBytes.length == name.length() ? ASCII_NAME : 0));
+        fileSize[id] = attributes.size();
+        lastModified[id] = attributes.lastModifiedTime().toMillis();
+        nameStart[id] = namesLength;
+        System.arraycopy(nameBytes, 0, names, namesLength, nameBytes.length);
+        namesLength += nameBytes.length;
+        return id;
+    }
+
+    // Runs the filter over every entry in parallel and returns the accepted ids in index order
+    public int[] query(Supplier<EntryFilter> filterFactory) {
+        lock.readLock().lock();
+        try {
+            return queryLocked(filterFactory);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int[] queryLocked(Supplier<EntryFilter> filterFactory) {
+        int chunks = (size + QUERY_CHUNK - 1) / QUERY_CHUNK;
+        int[][] chunkHits = new int[chunks][];
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            EntryFilter filter = filterFactory.get();
+            NameView view = new NameView();
+            int to = Math.min(size, (chunk + 1) * QUERY_CHUNK);
+            int[] hits = new int[16];
+            int count = 0;
+            for (int id = chunk * QUERY_CHUNK; id < to; id++) {
+                if ((flags[id] & DELETED) == 0 && filter.accept(id, name(id, view))) {
+                    if (count == hits.length) {
+                        hits = Arrays.copyOf(hits, count * 2);
+                    }
+                    hits[count++] = id;
+                }
+            }
+            chunkHits[chunk] = Arrays.copyOf(hits, count);
+        });
+
+        int total = 0;
+        for (int[] hits : chunkHits) {
+            total += hits.length;
+        }
+        int[] result = new int[total];
+        int offset = 0;
+        for (int[] hits : chunkHits) {
+            System.arraycopy(hits, 0, result, offset, hits.length);
+            offset += hits.length;
+        }
+        return result;
+    }
+
+    // Number of files and folders at depth <= maxDepth, what a crawl to that depth would scan
+    public long[] countEntries(int maxDepth) {
+        lock.readLock().lock();
+        try {
+            long files = 0;
+            long folders = 0;
+            for (int id = 0; id < size; id++) {
+                if (depth[id] <= maxDepth && (flags[id] & DELETED) == 0) {
+                    if ((flags[id] & DIRECTORY) != 0) {
+                        folders++;
+                    } else {
+                        files++;
+                    }
+                }
+            }
+            return new long[]{files, folders};
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private CharSequence name(int id, NameView view) {
+        int end = id + 1 < size ? nameStart[id + 1] : namesLength;
+        if ((flags[id] & ASCII_NAME) != 0) {
+            view.set(names, nameStart[id], end - nameStart[id]);
+            return view;
+        }
+        return new String(names, nameStart[id], end - nameStart[id], StandardCharsets.UTF_8);
+    }
+
+    public String getName(int id) {
+        lock.readLock().lock();
+        try {
+            return name(id, new NameView()).toString();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // -1 stands for the root itself
+    public Path getPath(int id) {
+        lock.readLock().lock();
+        try {
+            if (id < 0) {
+                return root;
+            }
+            StringBuilder relative = new StringBuilder(getName(id));
+            for (int ancestor = parent[id]; ancestor >= 0; ancestor = parent[ancestor]) {
+                relative.insert(0, root.getFileSystem().getSeparator()).insert(0, getName(ancestor));
+            }
+            return root.resolve(relative.toString());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public SearchResult toSearchResult(int id) {
+        lock.readLock().lock();
+        try {
+            return new SearchResult(getPath(id), isDirectory(id), isRegularFile(id), fileSize[id], lastModified[id], depth[id]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void update(int id, BasicFileAttributes attributes) {
+        lock.writeLock().lock();
+        try {
+            fileSize[id] = attributes.size();
+            lastModified[id] = attributes.lastModifiedTime().toMillis();
+            flags[id] = (byte) ((flags[id] & ~REGULAR_FILE) | (attributes.isRegularFile() ? REGULAR_FILE : 0));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Live children of each of the given directories (-1 for the root), by name
+    public Map<Integer, Map<String, Integer>> childrenOf(Set<Integer> directoryIds) {
+        lock.readLock().lock();
+        try {
+            Map<Integer, Map<String, Integer>> children = new HashMap<>();
+            for (Integer directoryId : directoryIds) {
+                children.put(directoryId, new HashMap<>());
+            }
+            NameView view = new NameView();
+            for (int id = 0; id < size; id++) {
+                Map<String, Integer> siblings = children.get(parent[id]);
+                if (siblings != null && (flags[id] & DELETED) == 0) {
+                    siblings.put(name(id, view).toString(), id);
+                }
+            }
+            return children;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Tombstones the given entries and everything below them; children always follow their parent,
+    // so one forward pass finds every descendant
+    public void delete(Collection<Integer> ids) {
+        lock.writeLock().lock();
+        try {
+            BitSet removed = new BitSet(size);
+            int first = size;
+            for (int id : ids) {
+                removed.set(id);
+                first = Math.min(first, id);
+            }
+            for (int id = first; id < size; id++) {
+                if (removed.get(id) || (parent[id] >= 0 && removed.get(parent[id]))) {
+                    removed.set(id);
+                    if ((flags[id] & DELETED) == 0) {
+                        flags[id] |= DELETED;
+                        deletedCount++;
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void deleteDescendants(int directoryId) {
+        lock.writeLock().lock();
+        try {
+            List<Integer> children = new ArrayList<>();
+            for (int id = directoryId + 1; id < size; id++) {
+                if (parent[id] == directoryId) {
+                    children.add(id);
+                }
+            }
+            delete(children);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Drops tombstones; returns the new id of every old id, or -1 for entries that were dropped
+    public int[] compact() {
+        lock.writeLock().lock();
+        try {
+            int[] newIds = new int[size];
+            byte[] compactNames = new byte[Math.max(16 * 1024, namesLength)];
+            int compactNamesLength = 0;
+            int kept = 0;
+            for (int id = 0; id < size; id++) {
+                if ((flags[id] & DELETED) != 0) {
+                    newIds[id] = -1;
+                    continue;
+                }
+                int end = id + 1 < size ? nameStart[id + 1] : namesLength;
+                int length = end - nameStart[id];
+                System.arraycopy(names, nameStart[id], compactNames, compactNamesLength, length);
+                newIds[id] = kept;
+                parent[kept] = parent[id] < 0 ? -1 : newIds[parent[id]];
+                depth[kept] = depth[id];
+                flags[kept] = flags[id];
+                fileSize[kept] = fileSize[id];
+                lastModified[kept] = lastModified[id];
+                nameStart[kept] = compactNamesLength;
+                compactNamesLength += length;
+                kept++;
+            }
+            size = kept;
+            names = compactNames;
+            namesLength = compactNamesLength;
+            deletedCount = 0;
+            return newIds;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Runs action under the read lock. compact() renumbers every id under the write lock, so ids from a query
+    // stay meaningful only until the lock is released: take them and use them inside one action.
+    public void readLocked(Runnable action) {
+        lock.readLock().lock();
+        try {
+            action.run();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The getters below do not lock. Callers hold the read lock (a query filter, or inside readLocked), or are
+    // IndexMaintainer's thread, the only writer.
+    public boolean isDeleted(int id) {
+        return (flags[id] & DELETED) != 0;
+    }
+
+    public int getDeletedCount() {
+        return deletedCount;
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    public long getBuiltAt() {
+        return builtAt;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getParent(int id) {
+        return parent[id];
+    }
+
+    public int getDepth(int id) {
+        return depth[id];
+    }
+
+    public boolean isDirectory(int id) {
+        return (flags[id] & DIRECTORY) != 0;
+    }
+
+    public boolean isRegularFile(int id) {
+        return (flags[id] & REGULAR_FILE) != 0;
+    }
+
+    public long getSize(int id) {
+        return fileSize[id];
+    }
+
+    public long getLastModified(int id) {
+        return lastModified[id];
+    }
+
+    public static Path indexFile(Path root) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(root.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder();
+            for (byte b : hash) {
+                name.append(String.format("%02x", b));
+            }
+            return Paths.get(System.getProperty("user.home"), ".file-utilities", "index", name + ".idx");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public void save() throws IOException {
+        lock.readLock().lock();
+        try {
+            write(indexFile(root));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void write(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BlockOutput out = new BlockOutput(FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))) {
+            byte[] rootBytes = root.toString().getBytes(StandardCharsets.UTF_8);
+            out.putInt(MAGIC);
+            out.putInt(FORMAT_VERSION);
+            out.putInt(rootBytes.length);
+            out.put(rootBytes, rootBytes.length);
+            out.putLong(builtAt);
+            out.putInt(size);
+            out.putInt(namesLength);
+            out.put(parent, size);
+            out.put(flags, size);
+            out.put(fileSize, size);
+            out.put(lastModified, size);
+            out.put(nameStart, size);
+            out.put(names, namesLength);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Returns null when there is no index for root or it was written by another format version
+    public static FileIndex load(Path root) throws IOException {
+        Path file = indexFile(root);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+
+        try (BlockInput in = new BlockInput(FileChannel.open(file, StandardOpenOption.READ))) {
+            if (in.getInt() != MAGIC || in.getInt() != FORMAT_VERSION) {
+                return null;
+            }
+            byte[] rootBytes = new byte[in.getInt()];
+            in.get(rootBytes, rootBytes.length);
+            if (!new String(rootBytes, StandardCharsets.UTF_8).equals(root.toString())) {
+                return null;
+            }
+
+            FileIndex index = new FileIndex(root);
+            index.builtAt = in.getLong();
+            index.size = in.getInt();
+            index.namesLength = in.getInt();
+            int capacity = Math.max(1024, index.size);
+            index.parent = new int[capacity];
+            index.depth = new int[capacity];
+            index.flags = new byte[capacity];
+            index.fileSize = new long[capacity];
+            index.lastModified = new long[capacity];
+            index.nameStart = new int[capacity];
+            index.names = new byte[Math.max(16 * 1024, index.namesLength)];
+            in.get(index.parent, index.size);
+            in.get(index.flags, index.size);
+            in.get(index.fileSize, index.size);
+            in.get(index.lastModified, index.size);
+            in.get(index.nameStart, index.size);
+            in.get(index.names, index.namesLength);
+            for (int id = 0; id < index.size; id++) {
+                int parentId = index.parent[id];
+                index.depth[id] = parentId < 0 ? 0 : index.depth[parentId] + 1;
+                if ((index.flags[id] & DELETED) != 0) {
+                    index.deletedCount++;
+                }
+            }
+            return index;
+        }
+    }
+
+    // Read-only view of an ASCII name inside the arena, reused across entries to keep queries allocation-free
+    private static class NameView implements CharSequence {
+        private byte[] bytes;
+        private int start;
+        private int length;
+
+        void set(byte[] bytes, int start, int length) {
+            this.bytes = bytes;
+            this.start = start;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) bytes[start + index];
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return new String(bytes, start + from, to - from, StandardCharsets.ISO_8859_1);
+        }
+
+        @Override
+        public String toString() {
+            return new String(bytes, start, length, StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    // Buffered primitive-array writer over a channel
+    private static class BlockOutput implements AutoCloseable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+
+        BlockOutput(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                buffer.clear();
+            }
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            ensure(8);
+            buffer.putLong(value);
+        }
+
+        void put(byte[] values, int count) throws IOException {
+            for (int offset = 0; offset < count; ) {
+                ensure(1);
+                int n = Math.min(buffer.remaining(), count - offset);
+                buffer.put(values, offset, n);
+                offset += n;
+            }
+        }
+
+        void put(int[] values, int count) throws IOException {
+            for (int i = 0; i < count; i++) {
+                putInt(values[i]);
+            }
+        }
+
+        void put(long[] values, int count) throws IOException {
+            for (int i = 0; i < count; i++) {
+                putLong(values[i]);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            ensure(buffer.capacity());
+            channel.close();
+        }
+    }
+
+    private static class BlockInput implements AutoCloseable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+
+        BlockInput(FileChannel channel) {
+            this.channel = channel;
+            buffer.flip();
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                buffer.compact();
+                while (buffer.position() < bytes) {
+                    if (channel.read(buffer) < 0) {
+                        throw new IOException("Truncated index file");
+                    }
+                }
+                buffer.flip();
+            }
+        }
+
+        int getInt() throws IOException {
+            ensure(4);
+            return buffer.getInt();
+        }
+
+        long getLong() throws IOException {
+            ensure(8);
+            return buffer.getLong();
+        }
+
+        void get(byte[] values, int count) throws IOException {
+            for (int offset = 0; offset < count; ) {
+                ensure(1);
+                int n = Math.min(buffer.remaining(), count - offset);
+                buffer.get(values, offset, n);
+                offset += n;
+            }
+        }
+
+        void get(int[] values, int count) throws IOException {
+            for (int i = 0; i < count; i++) {
+                values[i] = getInt();
+            }
+        }
+
+        void get(long[] values, int count) throws IOException {
+            for (int i = 0; i < count; i++) {
+                values[i] = getLong();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
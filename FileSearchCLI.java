@@ -0,0 +1,198 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+// Headless front end: the options of FileExplorerApp's command field plus a directory and a pattern.
+// Matches are written to stdout as the engine finds them, as plain paths or one JSON object per line,
+// and nothing is kept once written. With -content= plain lines read path:line,line,...
+// -duplicates has to see the whole tree first; its lines read group<TAB>size<TAB>path.
+// -du prints directories, deepest first, as size<TAB>files<TAB>path.
+// -export=FILE also writes every match to FILE; with -exportOnly, stdout stays empty.
+//
+//   java FileSearchCLI [options] [-format=plain|ndjson] [-stats] [--] <directory> [pattern]
+//
+// Exit status is 0 if anything matched, 1 if nothing did and 2 on bad arguments or a failed search.
+public class FileSearchCLI {
+    private static final long FLUSH_INTERVAL_MILLIS = 50;
+
+    private final Writer out;
+    private final boolean ndjson;
+    private final MultiPatternMatcher patternList;
+    private final StringBuilder json = new StringBuilder();
+    private long matches;
+    private long lastFlush = System.currentTimeMillis();
+    private volatile boolean failed = false; // stdout closed, e.g. piped into head
+
+    private FileSearchCLI(Writer out, boolean ndjson, MultiPatternMatcher patternList) {
+        this.out = out;
+        this.ndjson = ndjson;
+        this.patternList = patternList;
+    }
+
+    // Engines may call this from several threads at once
+    private synchronized void write(SearchResult result) {
+        if (failed) {
+            return;
+        }
+        try {
+            if (ndjson) {
+                ResultExporter.appendJson(json, result, patternList);
+                out.append(json);
+                json.setLength(0);
+            } else {
+                if (result.getDuplicateGroup() != 0) {
+                    out.write(result.getDuplicateGroup() + "\t" + result.getSize() + "\t");
+                } else if (result.getFileCount() >= 0) {
+                    out.write(result.getSize() + "\t" + result.getFileCount() + "\t");
+                }
+                out.write(result.getAbsolutePath());
+                if (result.getMatchedLines() != null) {
+                    out.write(':');
+                    writeLines(result.getMatchedLines());
+                }
+            }
+            out.write('\n');
+            matches++;
+            // A steady stream is flushed every few ms; flushLater covers the quiet gaps between matches
+            long now = System.currentTimeMillis();
+            if (now - lastFlush >= FLUSH_INTERVAL_MILLIS) {
+                out.flush();
+                lastFlush = now;
+            }
+        } catch (IOException e) {
+            failed = true;
+        }
+    }
+
+    private void writeLines(int[] lines) throws IOException {
+        for (int i = 0; i < lines.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.write(Integer.toString(lines[i]));
+        }
+    }
+
+    private synchronized void flush() {
+        if (failed) {
+            return;
+        }
+        try {
+            out.flush();
+            lastFlush = System.currentTimeMillis();
+        } catch (IOException e) {
+            failed = true;
+        }
+    }
+
+    private static void usage(String message) {
+        System.err.println(message);
+        System.err.println("Usage: java FileSearchCLI [options] [-format=plain|ndjson] [-stats] [--] <directory> [pattern]");
+        System.err.println("Options: -maxRecursionDepth=N -minRecursionDepth=N -maxHorizontal=N -maxResults=N -maxPerDepth=N");
+        System.err.println("         -engine=recursive|forkjoin|nio|virtual|index -order=dfs|bfs|recent -frontierLimit=N");
+        System.err.println("         -parallelism=N -ioConcurrency=N -reindex --mindateModified=DATE --maxdateModified=DATE");
+        System.err.println("         -patterns=a,b,c -patternFile=PATH -content=REGEX -contentBudget=MB -duplicates -du");
+        System.err.println("         -export=FILE -exportFormat=csv|ndjson|binary -exportOnly");
+        System.err.println("         -exclude=GLOB,... -xdev -followLinks");
+        System.exit(2);
+    }
+
+    public static void main(String[] args) {
+        SearchOptions options = new SearchOptions();
+        options.setWatchIndex(false);
+        boolean ndjson = false;
+        boolean printStats = false;
+        List<String> operands = new ArrayList<>();
+        boolean endOfOptions = false;
+        for (String arg : args) {
+            if (endOfOptions || !arg.startsWith("-")) {
+                operands.add(arg);
+            } else if (arg.equals("--")) {
+                endOfOptions = true;
+            } else if (arg.equals("-format=ndjson")) {
+                ndjson = true;
+            } else if (arg.equals("-format=plain")) {
+                ndjson = false;
+            } else if (arg.equals("-stats")) {
+                printStats = true;
+            } else if (!options.parseCommand(arg)) {
+                usage("Unknown option: " + arg);
+            }
+        }
+        if (!options.getProblems().isEmpty()) {
+            usage(options.getProblems().get(0));
+        }
+        if (operands.isEmpty() || operands.size() > 2) {
+            usage("Expected a directory and an optional pattern");
+        }
+
+        File directory = new File(operands.get(0));
+        if (!directory.isDirectory()) {
+            usage("Invalid directory: " + directory);
+        }
+        Pattern regexPattern = null;
+        try {
+            regexPattern = Pattern.compile(operands.size() > 1 ? operands.get(1) : "");
+        } catch (PatternSyntaxException e) {
+            usage("Regex syntax error: " + e.getDescription());
+        }
+
+        MultiPatternMatcher patternList = options.createPatternList();
+        SearchCriteria criteria = options.createCriteria(regexPattern, patternList);
+        Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(FileDescriptor.out), StandardCharsets.UTF_8), 64 * 1024);
+        final FileSearchCLI cli = new FileSearchCLI(out, ndjson, patternList);
+
+        Timer flushLater = new Timer("stdout-flush", true);
+        flushLater.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                cli.flush();
+            }
+        }, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS);
+
+        SearchStats stats = new SearchStats();
+        long startTime = System.nanoTime();
+        SearchSink sink = new SearchSink() {
+            @Override
+            public void accept(SearchResult result) {
+                cli.write(result);
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return cli.failed;
+            }
+        };
+        try {
+            options.runSearch(directory.toPath(), criteria, sink, stats);
+        } catch (IOException e) {
+            System.err.println("Search failed: " + e.getMessage());
+            System.exit(2);
+        }
+        flushLater.cancel();
+        cli.flush();
+
+        if (printStats) {
+            System.err.println("Files Scanned: " + stats.getFilesScanned() + ", Folders Scanned: " + stats.getFoldersScanned()
+                    + ", Files Matched: " + stats.getFilesMatched() + ", Folders Matched: " + stats.getFoldersMatched()
+                    + (options.hasContentPattern() ? ", Content Matched: " + stats.getContentFilesMatched()
+                            + ", Bytes Searched: " + stats.getContentBytesSearched() + ", Binary Skipped: " + stats.getBinaryFilesSkipped() : "")
+                    + (options.isFindDuplicates() ? ", Duplicate Groups: " + stats.getDuplicateGroups()
+                            + ", Reclaimable Bytes: " + stats.getReclaimableBytes() + ", Bytes Read: " + stats.getDuplicateBytesRead() : "")
+                    + (options.getExportFile() != null ? ", Exported: " + stats.getResultsExported() : "")
+                    + ", " + (System.nanoTime() - startTime) / 1e9 + " s");
+        }
+        System.exit(cli.matches > 0 || stats.getResultsExported() > 0 ? 0 : 1);
+    }
+}
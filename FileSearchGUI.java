@@ -2,12 +2,17 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
 import java.io.File;
-import java.util.ArrayList;
+import java.io.IOException;
+import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
 public class FileSearchGUI {
+    private static final int MAX_DISPLAYED_LINES = 10_000;
+
     private JFrame frame;
     private JTextField directoryField;
     private JTextField regexField;
@@ -16,6 +21,12 @@ public class FileSearchGUI {
     private JLabel countLabel;
     private JTextField maxDepthField;
     private JTextField timeoutField;
+    private JCheckBox useIndexCheckbox;
+    private JButton searchButton;
+    private JButton rebuildIndexButton;
+    private SearchTask currentTask;
+    private RebuildTask rebuildTask;
+    private Timer countTimer;
 
     public FileSearchGUI() {
         frame = new JFrame("File Search");
@@ -27,14 +38,41 @@ public class FileSearchGUI {
         countLabel = new JLabel();
         maxDepthField = new JTextField("∞", 5);
         timeoutField = new JTextField("20", 5);
+        useIndexCheckbox = new JCheckBox("Use Index");
 
-        JButton searchButton = new JButton("Search");
+        searchButton = new JButton("Search");
         searchButton.addActionListener(new ActionListener() {
             public void actionPerformed(ActionEvent e) {
                 searchFiles();
             }
         });
 
+        JButton cancelButton = new JButton("Cancel");
+        cancelButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                if (currentTask != null && !currentTask.isDone()) {
+                    currentTask.cancel(true);
+                }
+            }
+        });
+
+        countTimer = new Timer(100, new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                if (rebuildTask != null) {
+                    rebuildTask.updateProgress();
+                } else if (currentTask != null && !currentTask.isDone()) {
+                    currentTask.updateCounts();
+                }
+            }
+        });
+
+        rebuildIndexButton = new JButton("Rebuild Index");
+        rebuildIndexButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                rebuildIndex();
+            }
+        });
+
         JPanel panel = new JPanel(new BorderLayout());
         JPanel inputPanel = new JPanel(new FlowLayout());
         inputPanel.add(new JLabel("Directory:"));
@@ -47,6 +85,9 @@ public class FileSearchGUI {
         inputPanel.add(regexField);
         inputPanel.add(caseInsensitiveCheckbox);
         inputPanel.add(searchButton);
+        inputPanel.add(cancelButton);
+        inputPanel.add(useIndexCheckbox);
+        inputPanel.add(rebuildIndexButton);
 
         panel.add(inputPanel, BorderLayout.NORTH);
         panel.add(countLabel, BorderLayout.CENTER);
@@ -66,6 +107,9 @@ public class FileSearchGUI {
         int maxDepth = maxDepthField.getText().equals("∞") ? Integer.MAX_VALUE : Integer.parseInt(maxDepthField.getText());
         long timeout = Long.parseLong(timeoutField.getText()) * 1_000_000_000L; // Convert seconds to nanoseconds
 
+        if (currentTask != null && !currentTask.isDone()) {
+            currentTask.cancel(true);
+        }
         if (!dir.isDirectory()) {
             resultArea.setText("Not a directory");
             return;
@@ -75,63 +119,260 @@ public class FileSearchGUI {
             final Pattern patternCaseSensitive = Pattern.compile(regex);
             final Pattern patternCaseInsensitive = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
 
-            final Pattern initialPattern = caseInsensitive ? patternCaseInsensitive : patternCaseSensitive;
-            final Pattern oppositePattern = caseInsensitive ? patternCaseSensitive : patternCaseInsensitive;
-
-            // Start timing for the initial search
-            long startTime = System.nanoTime();
+            // Literal and ".*"-joined patterns are matched without the regex engine
+            final NameMatcher initialPattern = NameMatcher.compile(caseInsensitive ? patternCaseInsensitive : patternCaseSensitive, true);
+            final NameMatcher oppositePattern = NameMatcher.compile(caseInsensitive ? patternCaseSensitive : patternCaseInsensitive, true);
 
-            // Perform the initial search
-            List<String> initialFilesList = new ArrayList<>();
-            searchFilesRecursive(dir, initialPattern, initialFilesList, 0, maxDepth, startTime, timeout);
-            int initialCount = initialFilesList.size();
-            String initialCountLabel = caseInsensitive ? "Case Insensitive Count: " : "Case Sensitive Count: ";
+            resultArea.setText("");
+            currentTask = new SearchTask(dir, initialPattern, oppositePattern, caseInsensitive, maxDepth, timeout, useIndexCheckbox.isSelected());
+            currentTask.execute();
+            countTimer.restart();
+        } catch (PatternSyntaxException ex) {
+            resultArea.setText("Regex syntax error: " + ex.getDescription());
+        }
+    }
 
-            // End timing for initial search
-            long endTime = System.nanoTime();
-            double initialDuration = (endTime - startTime) / 1e9; // Convert nanoseconds to seconds
+    // Files only, whole-name match, depth as in searchFilesRecursive
+    private int[] queryIndex(FileIndex index, NameMatcher pattern, int maxDepth) {
+        return index.query(() -> (id, name) -> !index.isDirectory(id) && index.getDepth(id) <= maxDepth && pattern.matches(name));
+    }
 
-            // Start timing for the opposite search
-            startTime = System.nanoTime();
+    private void rebuildIndex() {
+        File dir = new File(directoryField.getText());
+        if (!dir.isDirectory()) {
+            resultArea.setText("Not a directory");
+            return;
+        }
+        if (currentTask != null && !currentTask.isDone()) {
+            currentTask.cancel(true);
+        }
+        searchButton.setEnabled(false);
+        rebuildIndexButton.setEnabled(false);
+        rebuildTask = new RebuildTask(dir);
+        rebuildTask.execute();
+        countTimer.restart();
+    }
 
-            // Perform the opposite search
-            List<String> oppositeFilesList = new ArrayList<>();
-            searchFilesRecursive(dir, oppositePattern, oppositeFilesList, 0, maxDepth, startTime, timeout);
-            int oppositeCount = oppositeFilesList.size();
-            String oppositeCountLabel = caseInsensitive ? "Case Sensitive Count: " : "Case Insensitive Count: ";
+    // Crawls and saves a fresh index off the EDT. Search and Rebuild stay disabled until it is done; the crawl
+    // cannot be cancelled, as a half-built index would replace the saved one.
+    private class RebuildTask extends SwingWorker<FileIndex, Void> {
+        private final File dir;
+        private final long startTime = System.nanoTime();
+        private volatile int indexed; // Entries so far, as told by the crawl for each directory it adds
 
-            // End timing for opposite search
-            endTime = System.nanoTime();
-            double oppositeDuration = (endTime - startTime) / 1e9; // Convert nanoseconds to seconds
+        RebuildTask(File dir) {
+            this.dir = dir;
+        }
 
-            // Update the count label with the counts and times
-            countLabel.setText("<html>" + initialCountLabel + initialCount + " (" + initialDuration + " s)<br>" +
-                               oppositeCountLabel + oppositeCount + " (" + oppositeDuration + " s)</html>");
+        @Override
+        protected FileIndex doInBackground() throws IOException {
+            FileIndex index = FileIndex.forRoot(dir.toPath(), true, (id, directory) -> indexed = id + 1);
+            IndexMaintainer.ensureRunning(index);
+            return index;
+        }
 
-            // Display the files found in the initial search
-            resultArea.setText("");
-            for (String file : initialFilesList) {
-                resultArea.append(file + "\n");
+        @Override
+        protected void done() {
+            rebuildTask = null;
+            countTimer.stop();
+            searchButton.setEnabled(true);
+            rebuildIndexButton.setEnabled(true);
+            try {
+                FileIndex index = get();
+                countLabel.setText("Indexed " + index.size() + " entries in " + (System.nanoTime() - startTime) / 1e9 + " s");
+            } catch (ExecutionException ex) {
+                countLabel.setText("");
+                resultArea.setText("Could not build index: " + ex.getCause().getMessage());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
             }
-        } catch (PatternSyntaxException ex) {
-            resultArea.setText("Regex syntax error: " + ex.getDescription());
+        }
+
+        // Called from countTimer
+        void updateProgress() {
+            countLabel.setText("Indexing: " + indexed + " entries, " + (System.nanoTime() - startTime) / 1e9 + " s");
         }
     }
 
-    private void searchFilesRecursive(File dir, Pattern pattern, List<String> filesFound, int currentDepth, int maxDepth, long startTime, long timeout) {
-        if (currentDepth > maxDepth || System.nanoTime() - startTime > timeout) {
-            return;
+    // One search off the EDT. Matches are published as they are found and appended to the result area a batch
+    // at a time, up to MAX_DISPLAYED_LINES; the counts keep going past that and are refreshed by countTimer.
+    // Cancel stops the walk between two entries.
+    private class SearchTask extends SwingWorker<Void, String> {
+        private final File dir;
+        private final NameMatcher initialPattern;
+        private final NameMatcher oppositePattern;
+        private final boolean caseInsensitive;
+        private final int maxDepth;
+        private final long timeout;
+        private final boolean useIndex;
+        private final PassTotals totals = new PassTotals();
+        private final long startTime = System.nanoTime();
+        private String indexDescription;  // Set by an index search
+        private String error;
+        private int displayed;  // EDT only
+
+        SearchTask(File dir, NameMatcher initialPattern, NameMatcher oppositePattern, boolean caseInsensitive,
+                   int maxDepth, long timeout, boolean useIndex) {
+            this.dir = dir;
+            this.initialPattern = initialPattern;
+            this.oppositePattern = oppositePattern;
+            this.caseInsensitive = caseInsensitive;
+            this.maxDepth = maxDepth;
+            this.timeout = timeout;
+            this.useIndex = useIndex;
+        }
+
+        @Override
+        protected Void doInBackground() {
+            if (useIndex) {
+                searchIndex();
+            } else {
+                // One pass evaluates both patterns; only the initial variant's paths are shown, the opposite one is just counted
+                searchFilesRecursive(dir, 0);
+            }
+            return null;
+        }
+
+        // Same search answered from the persistent index of dir; the index is built on first use
+        private void searchIndex() {
+            FileIndex index;
+            IndexMaintainer maintainer;
+            try {
+                index = FileIndex.forRoot(dir.toPath(), false);
+                maintainer = IndexMaintainer.ensureRunning(index);
+            } catch (IOException ex) {
+                error = "Could not read index: " + ex.getMessage();
+                return;
+            }
+            IOException maintenanceError = maintainer.takeError();
+            if (maintenanceError != null) {
+                error = "Index is out of date, rebuild it: " + maintenanceError.getMessage();
+                return;
+            }
+
+            // Ids are only stable under the index's read lock
+            index.readLocked(() -> queryLocked(index));
+        }
+
+        private void queryLocked(FileIndex index) {
+            long queryStart = System.nanoTime();
+            int[] initialMatches = queryIndex(index, initialPattern, maxDepth);
+            totals.initialMatchNanos = System.nanoTime() - queryStart;
+            totals.initialCount.add(initialMatches.length);
+
+            queryStart = System.nanoTime();
+            totals.oppositeCount.add(queryIndex(index, oppositePattern, maxDepth).length);
+            totals.oppositeMatchNanos = System.nanoTime() - queryStart;
+            indexDescription = "From index of " + index.size() + " entries built " + new Date(index.getBuiltAt());
+
+            for (int i = 0; i < initialMatches.length && i < MAX_DISPLAYED_LINES && !isCancelled(); i++) {
+                publish(index.getPath(initialMatches[i]).toString());
+            }
+        }
+
+        private void searchFilesRecursive(File dir, int currentDepth) {
+            if (currentDepth > maxDepth || isCancelled() || System.nanoTime() - startTime > timeout) {
+                return;
+            }
+            File[] files = dir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    if (isCancelled()) {
+                        return;
+                    }
+                    if (file.isDirectory()) {
+                        searchFilesRecursive(file, currentDepth + 1);
+                    } else {
+                        String name = file.getName();
+                        long matchStart = System.nanoTime();
+                        boolean initialMatch = initialPattern.matches(name);
+                        long matchMiddle = System.nanoTime();
+                        boolean oppositeMatch = oppositePattern.matches(name);
+                        totals.initialMatchNanos += matchMiddle - matchStart;
+                        totals.oppositeMatchNanos += System.nanoTime() - matchMiddle;
+
+                        if (initialMatch) {
+                            totals.initialCount.increment();
+                            if (totals.initialCount.sum() <= MAX_DISPLAYED_LINES) {
+                                publish(file.getAbsolutePath());
+                            }
+                        }
+                        if (oppositeMatch) {
+                            totals.oppositeCount.increment();
+                        }
+                    }
+                }
+            }
         }
-        File[] files = dir.listFiles();
-        if (files != null) {
-            for (File file : files) {
-                if (file.isDirectory()) {
-                    searchFilesRecursive(file, pattern, filesFound, currentDepth + 1, maxDepth, startTime, timeout);
-                } else if (pattern.matcher(file.getName()).matches()) {
-                    filesFound.add(file.getAbsolutePath());
+
+        @Override
+        protected void process(List<String> chunks) {
+            if (isCancelled()) {
+                return;  // A newer search owns the result area
+            }
+            // One insert per batch instead of one per line
+            StringBuilder batch = new StringBuilder();
+            for (String path : chunks) {
+                if (displayed == MAX_DISPLAYED_LINES) {
+                    break;
                 }
+                batch.append(path).append('\n');
+                displayed++;
             }
+            resultArea.append(batch.toString());
         }
+
+        @Override
+        protected void done() {
+            if (this != currentTask) {
+                return;
+            }
+            if (rebuildTask == null) {
+                countTimer.stop();
+            }
+            if (error != null) {
+                resultArea.setText(error);
+                countLabel.setText("");
+                return;
+            }
+            String initialCountLabel = caseInsensitive ? "Case Insensitive Count: " : "Case Sensitive Count: ";
+            String oppositeCountLabel = caseInsensitive ? "Case Sensitive Count: " : "Case Insensitive Count: ";
+            double totalDuration = (System.nanoTime() - startTime) / 1e9;
+            double initialDuration = totals.initialMatchNanos / 1e9;
+            double oppositeDuration = totals.oppositeMatchNanos / 1e9;
+            long initialCount = totals.initialCount.sum();
+            String status = (isCancelled() ? " (cancelled)" : "")
+                    + (initialCount > MAX_DISPLAYED_LINES ? "<br>Showing the first " + MAX_DISPLAYED_LINES + " paths" : "");
+
+            // The counts, the matching time of each pattern and the time of the shared walk or the index
+            if (useIndex) {
+                countLabel.setText("<html>" + initialCountLabel + initialCount + " (" + initialDuration + " s)<br>" +
+                                   oppositeCountLabel + totals.oppositeCount.sum() + " (" + oppositeDuration + " s)<br>" +
+                                   indexDescription + status + "</html>");
+            } else {
+                countLabel.setText("<html>" + initialCountLabel + initialCount + " (matching " + initialDuration + " s)<br>" +
+                                   oppositeCountLabel + totals.oppositeCount.sum() + " (matching " + oppositeDuration + " s)<br>" +
+                                   "Single pass: " + totalDuration + " s" + status + "</html>");
+            }
+        }
+
+        // Live view while the search runs; called from countTimer
+        void updateCounts() {
+            String initialCountLabel = caseInsensitive ? "Case Insensitive Count: " : "Case Sensitive Count: ";
+            String oppositeCountLabel = caseInsensitive ? "Case Sensitive Count: " : "Case Insensitive Count: ";
+            countLabel.setText("<html>" + initialCountLabel + totals.initialCount.sum() + "<br>" +
+                               oppositeCountLabel + totals.oppositeCount.sum() + "<br>" +
+                               "Searching: " + (System.nanoTime() - startTime) / 1e9 + " s</html>");
+        }
+    }
+
+    // Per-pattern results of one walk that evaluates both patterns on every name. The counts are read by the
+    // timer while the search runs; the timings only once it is done.
+    private static class PassTotals {
+        final LongAdder initialCount = new LongAdder();
+        final LongAdder oppositeCount = new LongAdder();
+        long initialMatchNanos;
+        long oppositeMatchNanos;
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,55 @@
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// One fork/join task per directory; idle workers steal pending subdirectories from busy ones
+public class ForkJoinSearchEngine implements SearchEngine {
+    private final int parallelism;
+
+    public ForkJoinSearchEngine(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    @Override
+    public void search(Path root, SearchCriteria criteria, SearchSink sink, SearchStats stats) {
+        if (!criteria.canDescend(0)) {
+            return;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new DirectoryTask(new DirectoryScanner(root, criteria, sink, stats), sink, root, 0));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static class DirectoryTask extends RecursiveAction {
+        private final DirectoryScanner scanner;
+        private final SearchSink sink;
+        private final Path directory;
+        private final int depth;
+
+        DirectoryTask(DirectoryScanner scanner, SearchSink sink, Path directory, int depth) {
+            this.scanner = scanner;
+            this.sink = sink;
+            this.directory = directory;
+            this.depth = depth;
+        }
+
+        @Override
+        protected void compute() {
+            if (sink.isCancelled()) {
+                return;
+            }
+
+            List<DirectoryTask> subtasks = new ArrayList<>();
+            for (Path subdirectory : scanner.scan(directory, depth)) {
+                subtasks.add(new DirectoryTask(scanner, sink, subdirectory, depth + 1));
+            }
+            invokeAll(subtasks);
+        }
+    }
+}
@@ -0,0 +1,306 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Keeps a FileIndex current by watching every indexed directory. Events only mark their directory dirty;
+// once the tree has been quiet for a moment each dirty directory is listed once and diffed against the index.
+// When the watch service overflows, the affected directory's whole subtree is dropped and re-walked.
+// Failures are kept for the next search to report, see takeError(); only a failed save at exit is printed.
+public class IndexMaintainer implements Closeable {
+    private static final long SETTLE_MILLIS = 300;
+    private static final long MAX_DELAY_MILLIS = 2000;
+    private static final long SAVE_INTERVAL_MILLIS = 60_000;
+
+    // One maintainer per indexed root for the whole process
+    private static final Map<Path, IndexMaintainer> runningMaintainers = new HashMap<>();
+
+    static {
+        // Persist whatever changed since the last periodic save
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            @Override
+            public void run() {
+                closeAll();
+            }
+        }));
+    }
+
+    private final FileIndex index;
+    private final WatchService watchService;
+    private final Map<WatchKey, Integer> directoryIds = new HashMap<>(); // -1 for the root
+    private final Set<Integer> dirtyDirectories = new HashSet<>();
+    private final Set<Integer> overflowedDirectories = new HashSet<>();
+    private final Thread thread;
+    private boolean unsaved = false;
+    private long lastSave = System.currentTimeMillis();
+    private volatile IOException error; // First background failure not yet taken by a search
+
+    private IndexMaintainer(FileIndex index) throws IOException {
+        this.index = index;
+        this.watchService = index.getRoot().getFileSystem().newWatchService();
+        this.thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                maintain();
+            }
+        }, "index-maintainer " + index.getRoot());
+        thread.setDaemon(true);
+    }
+
+    // Starts watching index unless it is already watched; replaces the maintainer of an older index of the same root
+    public static synchronized IndexMaintainer ensureRunning(FileIndex index) throws IOException {
+        IndexMaintainer maintainer = runningMaintainers.get(index.getRoot());
+        if (maintainer != null && maintainer.index == index) {
+            return maintainer;
+        }
+        if (maintainer != null) {
+            // The newer index supersedes its changes; saving them would overwrite the newer file
+            maintainer.stop();
+        }
+        maintainer = new IndexMaintainer(index);
+        runningMaintainers.put(index.getRoot(), maintainer);
+        maintainer.thread.start();
+        return maintainer;
+    }
+
+    // Stops the maintainer of root, if any, without saving; FileIndex calls this before a rebuild replaces the file
+    public static synchronized void discard(Path root) {
+        IndexMaintainer maintainer = runningMaintainers.remove(root);
+        if (maintainer != null) {
+            maintainer.stop();
+        }
+    }
+
+    private static synchronized void closeAll() {
+        for (IndexMaintainer maintainer : runningMaintainers.values()) {
+            try {
+                maintainer.close();
+            } catch (IOException e) {
+                // No search is left to take the error
+                System.err.println("Could not save index of " + maintainer.index.getRoot() + ": " + e.getMessage());
+            }
+        }
+        runningMaintainers.clear();
+    }
+
+    private void maintain() {
+        try {
+            registerAll();
+            long firstPending = 0;
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    collect(key);
+                    if (firstPending == 0) {
+                        firstPending = System.currentTimeMillis();
+                    }
+                }
+                boolean settled = key == null || System.currentTimeMillis() - firstPending > MAX_DELAY_MILLIS;
+                if (settled && firstPending != 0) {
+                    apply();
+                    firstPending = 0;
+                }
+                if (unsaved && System.currentTimeMillis() - lastSave > SAVE_INTERVAL_MILLIS) {
+                    try {
+                        save();
+                    } catch (IOException e) {
+                        fail(e);
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed
+        }
+    }
+
+    private void registerAll() {
+        register(-1, index.getRoot());
+        int size = index.size();
+        for (int id = 0; id < size; id++) {
+            if (index.isDirectory(id) && !index.isDeleted(id)) {
+                register(id, index.getPath(id));
+            }
+        }
+    }
+
+    private void register(int id, Path directory) {
+        try {
+            WatchKey key = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+            directoryIds.put(key, id);
+        } catch (IOException e) {
+            // Typically the OS limit on watches; that part of the tree goes stale until the next rebuild
+            fail(new IOException("Could not watch " + directory + ": " + e.getMessage(), e));
+        }
+    }
+
+    private void collect(WatchKey key) {
+        Integer directoryId = directoryIds.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (directoryId == null) {
+                continue;
+            }
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                overflowedDirectories.add(directoryId);
+            } else {
+                dirtyDirectories.add(directoryId);
+            }
+        }
+        if (!key.reset()) {
+            // The directory is gone; the event on its parent removes it from the index
+            directoryIds.remove(key);
+        }
+    }
+
+    private void apply() {
+        for (int directoryId : overflowedDirectories) {
+            if (directoryId < 0 || !index.isDeleted(directoryId)) {
+                rescan(directoryId);
+            }
+        }
+        dirtyDirectories.removeAll(overflowedDirectories);
+        overflowedDirectories.clear();
+
+        Map<Integer, Map<String, Integer>> children = index.childrenOf(dirtyDirectories);
+        List<Integer> removed = new ArrayList<>();
+        for (int directoryId : dirtyDirectories) {
+            if (directoryId < 0 || !index.isDeleted(directoryId)) {
+                reconcile(directoryId, children.get(directoryId), removed);
+            }
+        }
+        dirtyDirectories.clear();
+        if (!removed.isEmpty()) {
+            index.delete(removed);
+            cancelDeletedWatches();
+        }
+        unsaved = true;
+    }
+
+    // Diffs one directory's listing against its children in the index
+    private void reconcile(int directoryId, Map<String, Integer> known, List<Integer> removed) {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(index.getPath(directoryId))) {
+            for (Path entry : stream) {
+                BasicFileAttributes attributes = DirectoryScanner.readAttributes(entry);
+                if (attributes == null) {
+                    continue;
+                }
+                Integer id = known.remove(entry.getFileName().toString());
+                if (id != null && index.isDirectory(id) == attributes.isDirectory()) {
+                    index.update(id, attributes);
+                    continue;
+                }
+                if (id != null) {
+                    removed.add(id); // Replaced by an entry of the other kind
+                }
+                int newId = index.add(directoryId, entry.getFileName().toString(), attributes);
+                if (attributes.isDirectory()) {
+                    register(newId, entry);
+                    index.addTree(entry, newId, this::register);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            return; // Deleted itself; its parent's event takes care of it
+        } catch (IOException | DirectoryIteratorException e) {
+            // Unreadable now; like the crawl, keep what the index already knows about it
+            return;
+        }
+        removed.addAll(known.values());
+    }
+
+    // Targeted rescan after an overflow: drop everything below the directory and walk it again
+    private void rescan(int directoryId) {
+        index.deleteDescendants(directoryId);
+        cancelDeletedWatches();
+        try {
+            index.addTree(index.getPath(directoryId), directoryId, this::register);
+        } catch (IOException e) {
+            fail(e); // Its subtree is gone from the index until the next rebuild
+        }
+    }
+
+    private void cancelDeletedWatches() {
+        Iterator<Map.Entry<WatchKey, Integer>> iterator = directoryIds.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<WatchKey, Integer> entry = iterator.next();
+            if (entry.getValue() >= 0 && index.isDeleted(entry.getValue())) {
+                entry.getKey().cancel();
+                iterator.remove();
+            }
+        }
+    }
+
+    private void save() throws IOException {
+        // Drop tombstones once they are a noticeable share of the index; ids move, so remap the watches
+        if (index.getDeletedCount() > index.size() / 4) {
+            int[] newIds = index.compact();
+            for (Map.Entry<WatchKey, Integer> entry : directoryIds.entrySet()) {
+                if (entry.getValue() >= 0) {
+                    entry.setValue(newIds[entry.getValue()]);
+                }
+            }
+        }
+        try {
+            index.save();
+            unsaved = false;
+        } finally {
+            lastSave = System.currentTimeMillis();
+        }
+    }
+
+    private void fail(IOException e) {
+        if (error == null) {
+            error = e;
+        }
+    }
+
+    // Returns and forgets the first failure since the last call, null if the index has been kept up to date
+    public IOException takeError() {
+        IOException taken = error;
+        error = null;
+        return taken;
+    }
+
+    public FileIndex getIndex() {
+        return index;
+    }
+
+    // Waits for a save in progress on the maintainer thread, so nothing is written after this returns
+    private void stop() {
+        thread.interrupt();
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            // The thread is interrupted either way
+        }
+        try {
+            thread.join(SAVE_INTERVAL_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        stop();
+        if (unsaved) {
+            save();
+        }
+    }
+}
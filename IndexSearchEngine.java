@@ -0,0 +1,74 @@
+import java.io.IOException;
+import java.nio.file.Path;
+
+// Answers a search from the persistent FileIndex of the root instead of the disk
+public class IndexSearchEngine implements SearchEngine {
+    private final boolean rebuild;
+    private final boolean watch;
+
+    public IndexSearchEngine(boolean rebuild) {
+        this(rebuild, true);
+    }
+
+    // Without watch the index is used as last saved, and no maintainer is started for it
+    public IndexSearchEngine(boolean rebuild, boolean watch) {
+        this.rebuild = rebuild;
+        this.watch = watch;
+    }
+
+    @Override
+    // Throws if the index can neither be loaded nor built and saved, or if its maintainer failed to keep it current
+    public void search(Path root, SearchCriteria criteria, SearchSink sink, SearchStats stats) throws IOException {
+        FileIndex index = FileIndex.forRoot(root, rebuild);
+        if (watch) {
+            IOException error = IndexMaintainer.ensureRunning(index).takeError();
+            if (error != null) {
+                throw new IOException("Index of " + root + " is out of date, run with -reindex: " + error.getMessage(), error);
+            }
+        }
+
+        // The hits are turned into results under the same read lock, so a compaction cannot renumber them in between
+        index.readLocked(() -> searchLocked(index, criteria, sink, stats));
+    }
+
+    private static void searchLocked(FileIndex index, SearchCriteria criteria, SearchSink sink, SearchStats stats) {
+        int[] hits = index.query(() -> (id, name) -> criteria.canDescend(index.getDepth(id))
+                && criteria.matches(name, index.getLastModified(id), index.getDepth(id)));
+        long[] scanned = index.countEntries(criteria.getMaxRecursionDepth());
+        stats.addScanned(scanned[0], scanned[1]);
+
+        // maxHorizontal keeps the first matches of each directory in walk order, like the crawling engines
+        int[] perDirectory = criteria.getMaxHorizontal() == Integer.MAX_VALUE ? null : new int[index.size() + 1];
+        boolean excluding = criteria.getExcludeRules() != null && !criteria.getExcludeRules().hasNoPatterns();
+        for (int id : hits) {
+            if (sink.isCancelled()) {
+                return;
+            }
+            if (excluding && isExcluded(index, id, criteria)) {
+                continue;
+            }
+            if (perDirectory != null) {
+                int slot = index.getParent(id) + 1;
+                if (perDirectory[slot] >= criteria.getMaxHorizontal()) {
+                    continue;
+                }
+                perDirectory[slot]++;
+            }
+            stats.matched(index.isDirectory(id));
+            sink.accept(criteria.tag(index.toSearchResult(id)));
+        }
+    }
+
+    // The index holds the whole tree, so excluded subtrees are taken out of the hits instead: an entry is left
+    // out if it or a directory above it is excluded. -xdev does not apply; the index records no file systems.
+    private static boolean isExcluded(FileIndex index, int id, SearchCriteria criteria) {
+        Path root = index.getRoot();
+        Path relative = root.relativize(index.getPath(id));
+        for (int depth = 0; depth < relative.getNameCount(); depth++) {
+            if (criteria.isExcluded(root.resolve(relative.subpath(0, depth + 1)), depth)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
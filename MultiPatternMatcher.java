@@ -0,0 +1,200 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Aho-Corasick automaton over a list of literal name patterns, so a name is tested against all of them in one
+// left-to-right pass. A pattern matches anywhere in the name, like the search regex; a leading "^" or trailing
+// "$" anchors it to the start or end, so "^Thumbs.db$" only matches that exact name.
+// The automaton is a dense table over the characters that occur in the patterns; immutable and thread-safe.
+public class MultiPatternMatcher {
+    private final String[] patterns;
+    private final int[] patternLength;
+    private final boolean[] anchoredStart;
+    private final boolean[] anchoredEnd;
+
+    // Column of each char in the transition table; 0 for chars that appear in no pattern
+    private final char[] charClass = new char[Character.MAX_VALUE + 1];
+    private final int classCount;
+    private final int[] transitions; // state * classCount + class -> state
+    private final int[][] outputs;   // patterns ending in each state, including those reached through failure links
+
+    public MultiPatternMatcher(List<String> patternList) {
+        int count = patternList.size();
+        patterns = patternList.toArray(new String[0]);
+        patternLength = new int[count];
+        anchoredStart = new boolean[count];
+        anchoredEnd = new boolean[count];
+        String[] literals = new String[count];
+        for (int i = 0; i < count; i++) {
+            String literal = patterns[i];
+            if (literal.startsWith("^")) {
+                anchoredStart[i] = true;
+                literal = literal.substring(1);
+            }
+            if (literal.endsWith("$")) {
+                anchoredEnd[i] = true;
+                literal = literal.substring(0, literal.length() - 1);
+            }
+            literals[i] = literal;
+            patternLength[i] = literal.length();
+        }
+
+        int classes = 1;
+        for (String literal : literals) {
+            for (int j = 0; j < literal.length(); j++) {
+                if (charClass[literal.charAt(j)] == 0) {
+                    charClass[literal.charAt(j)] = (char) classes++;
+                }
+            }
+        }
+        classCount = classes;
+
+        // Trie
+        List<Map<Integer, Integer>> trie = new ArrayList<>();
+        List<List<Integer>> ends = new ArrayList<>();
+        trie.add(new HashMap<>());
+        ends.add(new ArrayList<>());
+        for (int i = 0; i < count; i++) {
+            int state = 0;
+            for (int j = 0; j < literals[i].length(); j++) {
+                int c = charClass[literals[i].charAt(j)];
+                Integer next = trie.get(state).get(c);
+                if (next == null) {
+                    next = trie.size();
+                    trie.get(state).put(c, next);
+                    trie.add(new HashMap<>());
+                    ends.add(new ArrayList<>());
+                }
+                state = next;
+            }
+            ends.get(state).add(i);
+        }
+
+        // Breadth-first over the trie to fill failure links and turn it into a complete transition table
+        int stateCount = trie.size();
+        transitions = new int[stateCount * classCount];
+        outputs = new int[stateCount][];
+        int[] failure = new int[stateCount];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        outputs[0] = toArray(ends.get(0));
+        for (int c = 0; c < classCount; c++) {
+            Integer next = trie.get(0).get(c);
+            if (next != null) {
+                transitions[c] = next;
+                queue.add(next);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            List<Integer> out = new ArrayList<>(ends.get(state));
+            for (int patternId : outputs[failure[state]]) {
+                out.add(patternId);
+            }
+            outputs[state] = toArray(out);
+            for (int c = 0; c < classCount; c++) {
+                Integer next = trie.get(state).get(c);
+                if (next != null) {
+                    failure[next] = transitions[failure[state] * classCount + c];
+                    transitions[state * classCount + c] = next;
+                    queue.add(next);
+                } else {
+                    transitions[state * classCount + c] = transitions[failure[state] * classCount + c];
+                }
+            }
+        }
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+
+    // As in a regex, an empty literal ("", "^" or "$") matches every name and "^$" only the empty one
+    private boolean accepts(int patternId, int end, int nameLength) {
+        return (!anchoredStart[patternId] || end == patternLength[patternId])
+                && (!anchoredEnd[patternId] || end == nameLength);
+    }
+
+    // Whether any pattern matches; stops at the first hit and allocates nothing
+    public boolean matchesAny(CharSequence name) {
+        int length = name.length();
+        int state = 0;
+        for (int i = 0; i <= length; i++) {
+            for (int patternId : outputs[state]) {
+                if (accepts(patternId, i, length)) {
+                    return true;
+                }
+            }
+            if (i < length) {
+                state = transitions[state * classCount + charClass[name.charAt(i)]];
+            }
+        }
+        return false;
+    }
+
+    // Ids of every pattern that matches, ascending; null if none does
+    public int[] match(CharSequence name) {
+        int length = name.length();
+        int state = 0;
+        int[] found = null;
+        int foundCount = 0;
+        for (int i = 0; i <= length; i++) {
+            for (int patternId : outputs[state]) {
+                if (accepts(patternId, i, length)) {
+                    if (found == null) {
+                        found = new int[Math.min(4, patterns.length)];
+                    } else if (contains(found, foundCount, patternId)) {
+                        continue;
+                    } else if (foundCount == found.length) {
+                        found = Arrays.copyOf(found, foundCount * 2);
+                    }
+                    found[foundCount++] = patternId;
+                }
+            }
+            if (i < length) {
+                state = transitions[state * classCount + charClass[name.charAt(i)]];
+            }
+        }
+        if (found == null) {
+            return null;
+        }
+        found = Arrays.copyOf(found, foundCount);
+        Arrays.sort(found);
+        return found;
+    }
+
+    private static boolean contains(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int getPatternCount() {
+        return patterns.length;
+    }
+
+    // The pattern as given, anchors included
+    public String getPattern(int patternId) {
+        return patterns[patternId];
+    }
+
+    public String describe(int[] patternIds) {
+        StringBuilder text = new StringBuilder();
+        for (int patternId : patternIds) {
+            if (text.length() > 0) {
+                text.append(", ");
+            }
+            text.append(patterns[patternId]);
+        }
+        return text.toString();
+    }
+}
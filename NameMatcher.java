@@ -0,0 +1,370 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Name test compiled from a regex. Patterns that are really literals, prefixes, suffixes or literals joined by
+// ".*" (e.g. "report", "^IMG_", "\.log$", "^build.*\.jar$") get a plain character matcher; anything else
+// falls back to java.util.regex. Matchers are thread-safe, so one instance serves every worker.
+public abstract class NameMatcher {
+    protected final Pattern pattern;
+
+    protected NameMatcher(Pattern pattern) {
+        this.pattern = pattern;
+    }
+
+    // True if the regex would find() a match in name, or matches() all of it when compiled with wholeName
+    public abstract boolean matches(CharSequence name);
+
+    public Pattern getPattern() {
+        return pattern;
+    }
+
+    // Name of the strategy picked, for diagnostics
+    public abstract String describe();
+
+    public static NameMatcher compile(Pattern pattern, boolean wholeName) {
+        NameMatcher literal = compileLiteral(pattern, wholeName);
+        return literal != null ? literal : new RegexMatcher(pattern, wholeName);
+    }
+
+    private static NameMatcher compileLiteral(Pattern pattern, boolean wholeName) {
+        // CASE_INSENSITIVE alone folds only US-ASCII, which the literal matchers reproduce exactly
+        if ((pattern.flags() & ~Pattern.CASE_INSENSITIVE) != 0) {
+            return null;
+        }
+        boolean ignoreCase = (pattern.flags() & Pattern.CASE_INSENSITIVE) != 0;
+        String body = pattern.pattern();
+        boolean anchoredStart = wholeName;
+        boolean anchoredEnd = wholeName;
+        boolean dollar = false;
+        if (body.startsWith("^")) {
+            anchoredStart = true;
+            body = body.substring(1);
+        }
+        if (body.endsWith("$") && !isEscaped(body, body.length() - 1)) {
+            anchoredEnd = true;
+            dollar = !wholeName;
+            body = body.substring(0, body.length() - 1);
+        }
+
+        List<String> parts = splitLiterals(body);
+        if (parts == null) {
+            return null;
+        }
+        if (parts.size() == 1) {
+            char[] literal = fold(parts.get(0), ignoreCase);
+            if (anchoredStart && anchoredEnd) {
+                return new ExactMatcher(pattern, literal, ignoreCase, dollar);
+            } else if (anchoredStart) {
+                return new PrefixMatcher(pattern, literal, ignoreCase);
+            } else if (anchoredEnd) {
+                return new SuffixMatcher(pattern, literal, ignoreCase, dollar);
+            }
+            return new ContainsMatcher(pattern, literal, ignoreCase);
+        }
+        char[][] literals = new char[parts.size()][];
+        for (int i = 0; i < literals.length; i++) {
+            literals[i] = fold(parts.get(i), ignoreCase);
+        }
+        return new GlobMatcher(pattern, literals, ignoreCase, anchoredStart, anchoredEnd, wholeName);
+    }
+
+    // Splits on unescaped ".*" and unescapes each piece; null if anything else in the regex is special
+    private static List<String> splitLiterals(String body) {
+        List<String> parts = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i < body.length(); i++) {
+            char c = body.charAt(i);
+            if (c == '\\') {
+                if (i + 1 >= body.length() || Character.isLetterOrDigit(body.charAt(i + 1))) {
+                    return null; // \d, \w, \Q, back references...
+                }
+                current.append(body.charAt(++i));
+            } else if (c == '.' && i + 1 < body.length() && body.charAt(i + 1) == '*'
+                    && !(i + 2 < body.length() && (body.charAt(i + 2) == '?' || body.charAt(i + 2) == '+'))) {
+                parts.add(current.toString());
+                current.setLength(0);
+                i++;
+            } else if ("[](){}.*+?|^$".indexOf(c) >= 0) {
+                return null;
+            } else {
+                current.append(c);
+            }
+        }
+        parts.add(current.toString());
+        return parts;
+    }
+
+    private static boolean isEscaped(String s, int index) {
+        int backslashes = 0;
+        for (int i = index - 1; i >= 0 && s.charAt(i) == '\\'; i--) {
+            backslashes++;
+        }
+        return backslashes % 2 == 1;
+    }
+
+    private static char[] fold(String literal, boolean ignoreCase) {
+        char[] chars = literal.toCharArray();
+        if (ignoreCase) {
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = fold(chars[i]);
+            }
+        }
+        return chars;
+    }
+
+    private static char fold(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    private static boolean regionMatches(CharSequence name, int offset, char[] literal, boolean ignoreCase) {
+        if (offset < 0 || offset + literal.length > name.length()) {
+            return false;
+        }
+        for (int i = 0; i < literal.length; i++) {
+            char c = name.charAt(offset + i);
+            if ((ignoreCase ? fold(c) : c) != literal[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // What "." does not match, and what "$" may precede
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    private static boolean containsLineTerminator(CharSequence name) {
+        for (int i = 0; i < name.length(); i++) {
+            if (isLineTerminator(name.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean endsWithLineTerminator(CharSequence name) {
+        return name.length() > 0 && isLineTerminator(name.charAt(name.length() - 1));
+    }
+
+    private static class RegexMatcher extends NameMatcher {
+        private final boolean wholeName;
+        // Matchers are reused per thread instead of allocating one per name
+        private final ThreadLocal<Matcher> matchers;
+
+        RegexMatcher(Pattern pattern, boolean wholeName) {
+            super(pattern);
+            this.wholeName = wholeName;
+            this.matchers = ThreadLocal.withInitial(() -> pattern.matcher(""));
+        }
+
+        @Override
+        public boolean matches(CharSequence name) {
+            Matcher matcher = matchers.get().reset(name);
+            return wholeName ? matcher.matches() : matcher.find();
+        }
+
+        @Override
+        public String describe() {
+            return "regex";
+        }
+    }
+
+    private static class ExactMatcher extends NameMatcher {
+        private final char[] literal;
+        private final boolean ignoreCase;
+        private final boolean dollar;
+
+        ExactMatcher(Pattern pattern, char[] literal, boolean ignoreCase, boolean dollar) {
+            super(pattern);
+            this.literal = literal;
+            this.ignoreCase = ignoreCase;
+            this.dollar = dollar;
+        }
+
+        @Override
+        public boolean matches(CharSequence name) {
+            if (dollar && endsWithLineTerminator(name)) {
+                return pattern.matcher(name).find();
+            }
+            return name.length() == literal.length && regionMatches(name, 0, literal, ignoreCase);
+        }
+
+        @Override
+        public String describe() {
+            return "exact";
+        }
+    }
+
+    private static class PrefixMatcher extends NameMatcher {
+        private final char[] literal;
+        private final boolean ignoreCase;
+
+        PrefixMatcher(Pattern pattern, char[] literal, boolean ignoreCase) {
+            super(pattern);
+            this.literal = literal;
+            this.ignoreCase = ignoreCase;
+        }
+
+        @Override
+        public boolean matches(CharSequence name) {
+            return regionMatches(name, 0, literal, ignoreCase);
+        }
+
+        @Override
+        public String describe() {
+            return "prefix";
+        }
+    }
+
+    private static class SuffixMatcher extends NameMatcher {
+        private final char[] literal;
+        private final boolean ignoreCase;
+        private final boolean dollar;
+
+        SuffixMatcher(Pattern pattern, char[] literal, boolean ignoreCase, boolean dollar) {
+            super(pattern);
+            this.literal = literal;
+            this.ignoreCase = ignoreCase;
+            this.dollar = dollar;
+        }
+
+        @Override
+        public boolean matches(CharSequence name) {
+            if (dollar && endsWithLineTerminator(name)) {
+                return pattern.matcher(name).find();
+            }
+            return regionMatches(name, name.length() - literal.length, literal, ignoreCase);
+        }
+
+        @Override
+        public String describe() {
+            return "suffix";
+        }
+    }
+
+    // Substring search; literals of three or more characters use a Horspool skip table
+    private static class ContainsMatcher extends NameMatcher {
+        private final char[] literal;
+        private final boolean ignoreCase;
+        private final int[] shift;
+
+        ContainsMatcher(Pattern pattern, char[] literal, boolean ignoreCase) {
+            super(pattern);
+            this.literal = literal;
+            this.ignoreCase = ignoreCase;
+            this.shift = literal.length >= 3 ? skipTable(literal) : null;
+        }
+
+        @Override
+        public boolean matches(CharSequence name) {
+            return indexOf(name, 0) >= 0;
+        }
+
+        int indexOf(CharSequence name, int from) {
+            int last = name.length() - literal.length;
+            if (shift == null) {
+                for (int i = from; i <= last; i++) {
+                    if (regionMatches(name, i, literal, ignoreCase)) {
+                        return i;
+                    }
+                }
+                return -1;
+            }
+
+            int i = from;
+            while (i <= last) {
+                int j = literal.length - 1;
+                while (j >= 0 && at(name, i + j) == literal[j]) {
+                    j--;
+                }
+                if (j < 0) {
+                    return i;
+                }
+                i += shift[at(name, i + literal.length - 1) & 0xFF];
+            }
+            return -1;
+        }
+
+        private char at(CharSequence name, int index) {
+            char c = name.charAt(index);
+            return ignoreCase ? fold(c) : c;
+        }
+
+        // Characters share a bucket by their low byte; later positions overwrite with smaller, safe shifts
+        private static int[] skipTable(char[] literal) {
+            int[] table = new int[256];
+            Arrays.fill(table, literal.length);
+            for (int i = 0; i < literal.length - 1; i++) {
+                table[literal[i] & 0xFF] = literal.length - 1 - i;
+            }
+            return table;
+        }
+
+        @Override
+        public String describe() {
+            return shift == null ? "contains" : "contains (skip table)";
+        }
+    }
+
+    // Literals separated by ".*", optionally anchored at either end
+    private static class GlobMatcher extends NameMatcher {
+        private final char[][] literals;
+        private final boolean ignoreCase;
+        private final boolean anchoredStart;
+        private final boolean anchoredEnd;
+        private final boolean wholeName;
+        private final ContainsMatcher[] middle;
+
+        GlobMatcher(Pattern pattern, char[][] literals, boolean ignoreCase, boolean anchoredStart, boolean anchoredEnd, boolean wholeName) {
+            super(pattern);
+            this.literals = literals;
+            this.ignoreCase = ignoreCase;
+            this.anchoredStart = anchoredStart;
+            this.anchoredEnd = anchoredEnd;
+            this.wholeName = wholeName;
+            this.middle = new ContainsMatcher[literals.length];
+            for (int i = 0; i < literals.length; i++) {
+                middle[i] = new ContainsMatcher(pattern, literals[i], ignoreCase);
+            }
+        }
+
+        @Override
+        public boolean matches(CharSequence name) {
+            // ".*" stops at line terminators; leave such names to the regex engine
+            if (containsLineTerminator(name)) {
+                Matcher matcher = pattern.matcher(name);
+                return wholeName ? matcher.matches() : matcher.find();
+            }
+
+            int position = 0;
+            int lastIndex = literals.length - 1;
+            for (int i = 0; i <= lastIndex; i++) {
+                if (i == 0 && anchoredStart) {
+                    if (!regionMatches(name, 0, literals[0], ignoreCase)) {
+                        return false;
+                    }
+                    position = literals[0].length;
+                } else if (i == lastIndex && anchoredEnd) {
+                    int start = name.length() - literals[i].length;
+                    return start >= position && regionMatches(name, start, literals[i], ignoreCase);
+                } else {
+                    int found = middle[i].indexOf(name, position);
+                    if (found < 0) {
+                        return false;
+                    }
+                    position = found + literals[i].length;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String describe() {
+            return "glob";
+        }
+    }
+}
@@ -0,0 +1,115 @@
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumSet;
+
+// Sequential walk on Files.walkFileTree; the visitor gets the attributes the walker already read for each entry
+public class NioSearchEngine implements SearchEngine {
+    @Override
+    public void search(Path root, SearchCriteria criteria, SearchSink sink, SearchStats stats) throws IOException {
+        if (!criteria.canDescend(0)) {
+            return;
+        }
+
+        // walkFileTree counts the root as depth 0, our depth 0 is the root's entries
+        int maxDepth = criteria.getMaxRecursionDepth() == Integer.MAX_VALUE ? Integer.MAX_VALUE : criteria.getMaxRecursionDepth() + 1;
+        Files.walkFileTree(root, criteria.isFollowLinks() ? EnumSet.of(FileVisitOption.FOLLOW_LINKS) : EnumSet.noneOf(FileVisitOption.class),
+                maxDepth, new MatchingVisitor(root, criteria, sink, stats));
+    }
+
+    private static class MatchingVisitor extends SimpleFileVisitor<Path> {
+        private final Path root;
+        private final SearchCriteria criteria;
+        private final SearchSink sink;
+        private final SearchStats stats;
+        private final Object rootFileSystem; // Set with -xdev only
+        // Set with -followLinks only; walkFileTree itself only catches links back to an ancestor
+        private final VisitedDirectories visited;
+        // Matches published so far in each open directory, innermost last
+        private final Deque<int[]> horizontalCounts = new ArrayDeque<>();
+
+        MatchingVisitor(Path root, SearchCriteria criteria, SearchSink sink, SearchStats stats) {
+            this.root = root;
+            this.criteria = criteria;
+            this.sink = sink;
+            this.stats = stats;
+            ExcludeRules excludeRules = criteria.getExcludeRules();
+            // The root is listed through a link either way
+            this.rootFileSystem = excludeRules != null && excludeRules.isSameFileSystem() ? ExcludeRules.fileSystemOf(root, true) : null;
+            this.visited = criteria.isFollowLinks() ? new VisitedDirectories() : null;
+        }
+
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+            if (sink.isCancelled()) {
+                return FileVisitResult.TERMINATE;
+            }
+            if (!dir.equals(root)) {
+                if (!visitEntry(dir, attrs)
+                        || (rootFileSystem != null && !rootFileSystem.equals(ExcludeRules.fileSystemOf(dir, criteria.isFollowLinks())))
+                        || (visited != null && !visited.add(dir))) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+            }
+            horizontalCounts.push(new int[1]);
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+            if (sink.isCancelled()) {
+                return FileVisitResult.TERMINATE;
+            }
+            visitEntry(file, attrs);
+            // Below the deepest listed level nothing is left to find once the quota is filled
+            int depth = horizontalCounts.size() - 1;
+            if (!criteria.canDescend(depth + 1)
+                    && (horizontalCounts.peek()[0] >= criteria.getMaxHorizontal() || criteria.isDepthFull(depth))) {
+                return FileVisitResult.SKIP_SIBLINGS;
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        // An unreadable directory, or a link back to an ancestor; like the other engines, the entry itself is still
+        // counted and matched from its parent's listing
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException exc) {
+            if (sink.isCancelled()) {
+                return FileVisitResult.TERMINATE;
+            }
+            BasicFileAttributes attrs = file.equals(root) ? null : DirectoryScanner.readAttributes(file, criteria.isFollowLinks());
+            if (attrs != null) {
+                visitEntry(file, attrs);
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+            horizontalCounts.pop();
+            return FileVisitResult.CONTINUE;
+        }
+
+        // False if the entry is excluded
+        private boolean visitEntry(Path entry, BasicFileAttributes attrs) {
+            int depth = horizontalCounts.size() - 1;
+            int[] count = horizontalCounts.peek();
+            stats.scanned(attrs.isDirectory());
+            if (criteria.isExcluded(entry, depth)) {
+                return false;
+            }
+            if (count[0] < criteria.getMaxHorizontal() && !criteria.isDepthFull(depth) && criteria.matches(entry.getFileName().toString(), attrs, depth)) {
+                count[0]++;
+                stats.matched(attrs.isDirectory());
+                sink.accept(criteria.tag(new SearchResult(entry, attrs, depth)));
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// Single-threaded walk that takes the next directory from a DirectoryFrontier instead of recursing, so
+// shallow or recently changed directories are listed, and their matches shown, before deep or stale ones
+public class OrderedSearchEngine implements SearchEngine {
+    private final String order;
+    private final int frontierLimit;
+
+    public OrderedSearchEngine(String order, int frontierLimit) {
+        this.order = order;
+        this.frontierLimit = frontierLimit;
+    }
+
+    // Throws if the frontier's spill files cannot be written or read back
+    @Override
+    public void search(Path root, SearchCriteria criteria, SearchSink sink, SearchStats stats) throws IOException {
+        if (!criteria.canDescend(0)) {
+            return;
+        }
+
+        DirectoryScanner scanner = new DirectoryScanner(root, criteria, sink, stats);
+        DirectoryFrontier frontier = DirectoryFrontier.create(order, frontierLimit);
+        boolean byModified = order.equals("recent");
+        try {
+            frontier.add(new DirectoryFrontier.Entry(root, 0, 0));
+            DirectoryFrontier.Entry next;
+            while (!sink.isCancelled() && (next = frontier.poll()) != null) {
+                List<Long> modified = byModified ? new ArrayList<>() : null;
+                List<Path> subdirectories = scanner.scan(next.directory, next.depth, modified);
+                for (int i = 0; i < subdirectories.size(); i++) {
+                    frontier.add(new DirectoryFrontier.Entry(subdirectories.get(i), next.depth + 1, byModified ? modified.get(i) : 0));
+                }
+            }
+        } finally {
+            frontier.close();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+import java.nio.file.Path;
+
+// The original single-threaded depth-first walk
+public class RecursiveSearchEngine implements SearchEngine {
+    @Override
+    public void search(Path root, SearchCriteria criteria, SearchSink sink, SearchStats stats) {
+        searchFilesRecursive(new DirectoryScanner(root, criteria, sink, stats), criteria, sink, root, 0);
+    }
+
+    private void searchFilesRecursive(DirectoryScanner scanner, SearchCriteria criteria, SearchSink sink, Path directory, int depth) {
+        if (!criteria.canDescend(depth) || sink.isCancelled()) {
+            return;
+        }
+
+        for (Path subdirectory : scanner.scan(directory, depth)) {
+            searchFilesRecursive(scanner, criteria, sink, subdirectory, depth + 1);
+        }
+    }
+}
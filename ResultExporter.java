@@ -0,0 +1,357 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Export stage at the end of the chain: each result is written to a file as it arrives, then passed on to
+// downstream, if there is one. Records are built in one reused buffer and written to the channel whenever
+// it fills, so nothing is kept once written. Formats:
+//   csv     header row, then path,name,type,size,lastModified,depth,patterns,lines,duplicateGroup,files
+//   ndjson  one object per line, as FileSearchCLI -format=ndjson
+//   binary  "FER1", pattern count and patterns (varint length + UTF-8), then per result: flags byte
+//           (1 directory, 2 patterns, 4 lines, 8 duplicate group, 16 file count), varints for the bytes the
+//           path shares with the previous path and the length of the rest, the rest of the path (UTF-8),
+//           varint size, 8-byte lastModified, varint depth + 1, then the flagged parts in that order
+//           (lists as varint count + varints)
+// A write error cancels the search; finish() reports it.
+public class ResultExporter implements SearchSink {
+    public enum Format {
+        CSV, NDJSON, BINARY;
+
+        // By file extension: .csv and .ndjson/.jsonl, anything else is binary
+        public static Format forFile(Path file) {
+            String name = file.getFileName().toString().toLowerCase();
+            if (name.endsWith(".csv")) {
+                return CSV;
+            } else if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) {
+                return NDJSON;
+            }
+            return BINARY;
+        }
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final byte[] MAGIC = {'F', 'E', 'R', '1'};
+
+    private final Path file;
+    private final FileChannel channel;
+    private final Format format;
+    private final MultiPatternMatcher patternList;
+    private final SearchSink downstream; // Null when exporting only
+    private final SearchStats stats;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final StringBuilder record = new StringBuilder();
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private byte[] previousPath = new byte[0];
+    private volatile IOException error;
+
+    public ResultExporter(Path file, Format format, MultiPatternMatcher patternList, SearchSink downstream, SearchStats stats) throws IOException {
+        this.file = file;
+        try {
+            this.channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            throw new IOException("Could not create export file " + file + ": " + e, e);
+        }
+        this.format = format;
+        this.patternList = patternList;
+        this.downstream = downstream;
+        this.stats = stats;
+        if (format == Format.CSV) {
+            record.append("path,name,type,size,lastModified,depth,patterns,lines,duplicateGroup,files\n");
+            writeRecord();
+        } else if (format == Format.BINARY) {
+            buffer.put(MAGIC);
+            int count = patternList == null ? 0 : patternList.getPatternCount();
+            putVarint(count);
+            for (int id = 0; id < count; id++) {
+                putBytes(patternList.getPattern(id).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    @Override
+    public void accept(SearchResult result) {
+        write(result);
+        if (downstream != null) {
+            downstream.accept(result);
+        }
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return error != null || (downstream != null && downstream.isCancelled());
+    }
+
+    // Engines may call this from several threads at once
+    private synchronized void write(SearchResult result) {
+        if (error != null) {
+            return;
+        }
+        try {
+            if (format == Format.BINARY) {
+                writeBinary(result);
+            } else {
+                if (format == Format.CSV) {
+                    appendCsv(record, result, patternList);
+                } else {
+                    appendJson(record, result, patternList);
+                }
+                record.append('\n');
+                writeRecord();
+            }
+            stats.exported();
+        } catch (IOException e) {
+            error = e;
+        }
+    }
+
+    // Writes what is buffered and closes the file; throws the first write error, if there was one
+    public synchronized void finish() throws IOException {
+        try {
+            if (error == null) {
+                drain();
+            }
+        } catch (IOException e) {
+            error = e;
+        } finally {
+            channel.close();
+        }
+        if (error != null) {
+            throw new IOException("Could not write export file " + file + ": " + error, error);
+        }
+    }
+
+    // Closes and deletes the file of a search that ended in an exception, rather than leave half an export behind
+    public synchronized void abort() {
+        try {
+            channel.close();
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // Nothing more to do with it
+        }
+    }
+
+    private void writeRecord() throws IOException {
+        CharBuffer chars = CharBuffer.wrap(record);
+        encoder.reset();
+        while (encoder.encode(chars, buffer, true).isOverflow()) {
+            drain();
+        }
+        while (encoder.flush(buffer).isOverflow()) {
+            drain();
+        }
+        record.setLength(0);
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            drain();
+        }
+    }
+
+    // Front-coded against the previous path: sorted or clustered paths shrink to their differing tails
+    private void writeBinary(SearchResult result) throws IOException {
+        byte[] path = result.getAbsolutePath().getBytes(StandardCharsets.UTF_8);
+        int shared = 0;
+        int limit = Math.min(path.length, previousPath.length);
+        while (shared < limit && path[shared] == previousPath[shared]) {
+            shared++;
+        }
+        previousPath = path;
+
+        int[] patterns = result.getMatchedPatterns();
+        int[] lines = result.getMatchedLines();
+        int flags = (result.isDirectory() ? 1 : 0) | (patterns != null ? 2 : 0) | (lines != null ? 4 : 0)
+                | (result.getDuplicateGroup() != 0 ? 8 : 0) | (result.getFileCount() >= 0 ? 16 : 0);
+        ensure(1 + 5 + 5);
+        buffer.put((byte) flags);
+        putVarint(shared);
+        putVarint(path.length - shared);
+        putRaw(path, shared);
+        ensure(10 + 8 + 5);
+        putVarlong(result.getSize());
+        buffer.putLong(result.getLastModified());
+        putVarint(result.getDepth() + 1); // du mode reports its root at depth -1
+        if (patterns != null) {
+            putList(patterns);
+        }
+        if (lines != null) {
+            putList(lines);
+        }
+        if (result.getDuplicateGroup() != 0) {
+            ensure(5);
+            putVarint(result.getDuplicateGroup());
+        }
+        if (result.getFileCount() >= 0) {
+            ensure(10);
+            putVarlong(result.getFileCount());
+        }
+    }
+
+    private void putList(int[] values) throws IOException {
+        ensure(5);
+        putVarint(values.length);
+        for (int value : values) {
+            ensure(5);
+            putVarint(value);
+        }
+    }
+
+    private void putBytes(byte[] bytes) throws IOException {
+        ensure(5);
+        putVarint(bytes.length);
+        putRaw(bytes, 0);
+    }
+
+    // In pieces, for the odd run that is longer than the buffer
+    private void putRaw(byte[] bytes, int offset) throws IOException {
+        while (offset < bytes.length) {
+            ensure(1);
+            int count = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, count);
+            offset += count;
+        }
+    }
+
+    private void putVarint(int value) {
+        putVarlong(value & 0xFFFFFFFFL);
+    }
+
+    private void putVarlong(long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    public static void appendJson(StringBuilder out, SearchResult result, MultiPatternMatcher patternList) {
+        out.append("{\"path\":");
+        appendJsonString(out, result.getAbsolutePath());
+        out.append(",\"name\":");
+        appendJsonString(out, result.getName());
+        out.append(",\"type\":").append(result.isDirectory() ? "\"directory\"" : "\"file\"");
+        out.append(",\"size\":").append(result.getSize());
+        out.append(",\"lastModified\":").append(result.getLastModified());
+        out.append(",\"depth\":").append(result.getDepth());
+        if (result.getMatchedPatterns() != null) {
+            out.append(",\"patterns\":[");
+            int[] ids = result.getMatchedPatterns();
+            for (int i = 0; i < ids.length; i++) {
+                if (i > 0) {
+                    out.append(',');
+                }
+                appendJsonString(out, patternList.getPattern(ids[i]));
+            }
+            out.append(']');
+        }
+        if (result.getFileCount() >= 0) {
+            out.append(",\"files\":").append(result.getFileCount());
+        }
+        if (result.getDuplicateGroup() != 0) {
+            out.append(",\"duplicateGroup\":").append(result.getDuplicateGroup());
+        }
+        if (result.getMatchedLines() != null) {
+            out.append(",\"lines\":[");
+            appendList(out, result.getMatchedLines(), ',');
+            out.append(']');
+        }
+        out.append('}');
+    }
+
+    private static void appendJsonString(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append(String.format("\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+        out.append('"');
+    }
+
+    // Lists inside a field are separated by ';'; empty fields stand for "not applicable"
+    private static void appendCsv(StringBuilder out, SearchResult result, MultiPatternMatcher patternList) {
+        appendCsvString(out, result.getAbsolutePath());
+        out.append(',');
+        appendCsvString(out, result.getName());
+        out.append(',').append(result.isDirectory() ? "directory" : "file");
+        out.append(',').append(result.getSize());
+        out.append(',').append(result.getLastModified());
+        out.append(',').append(result.getDepth());
+        out.append(',');
+        if (result.getMatchedPatterns() != null) {
+            StringBuilder patterns = new StringBuilder();
+            int[] ids = result.getMatchedPatterns();
+            for (int i = 0; i < ids.length; i++) {
+                if (i > 0) {
+                    patterns.append(';');
+                }
+                patterns.append(patternList.getPattern(ids[i]));
+            }
+            appendCsvString(out, patterns.toString());
+        }
+        out.append(',');
+        if (result.getMatchedLines() != null) {
+            appendList(out, result.getMatchedLines(), ';');
+        }
+        out.append(',');
+        if (result.getDuplicateGroup() != 0) {
+            out.append(result.getDuplicateGroup());
+        }
+        out.append(',');
+        if (result.getFileCount() >= 0) {
+            out.append(result.getFileCount());
+        }
+    }
+
+    // Quoted only when it has to be (RFC 4180)
+    private static void appendCsvString(StringBuilder out, String value) {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.append(value);
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        out.append('"');
+    }
+
+    private static void appendList(StringBuilder out, int[] values, char separator) {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                out.append(separator);
+            }
+            out.append(values[i]);
+        }
+    }
+}
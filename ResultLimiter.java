@@ -0,0 +1,47 @@
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Limit stage in front of export: passes on at most maxResults results in all and at most maxPerDepth at each
+// depth, counting what the earlier stages let through. Once the total is reached it reports itself cancelled,
+// which stops the engine and every stage upstream, so "the first 100" come back as soon as they are found.
+// Engines ask isDepthFull() (through SearchCriteria) to stop matching at a depth whose quota is filled.
+public class ResultLimiter implements SearchSink {
+    private final long maxResults;
+    private final int maxPerDepth;
+    private final SearchSink downstream;
+    private final AtomicLong accepted = new AtomicLong();
+    private final ConcurrentHashMap<Integer, AtomicInteger> perDepth = new ConcurrentHashMap<>();
+
+    public ResultLimiter(long maxResults, int maxPerDepth, SearchSink downstream) {
+        this.maxResults = maxResults;
+        this.maxPerDepth = maxPerDepth;
+        this.downstream = downstream;
+    }
+
+    @Override
+    public void accept(SearchResult result) {
+        // A slot is taken before the result is passed on, so racing threads never pass more than the quota
+        if (maxPerDepth != Integer.MAX_VALUE
+                && perDepth.computeIfAbsent(result.getDepth(), depth -> new AtomicInteger()).incrementAndGet() > maxPerDepth) {
+            return;
+        }
+        if (accepted.incrementAndGet() > maxResults) {
+            return;
+        }
+        downstream.accept(result);
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return accepted.get() >= maxResults || downstream.isCancelled();
+    }
+
+    public boolean isDepthFull(int depth) {
+        if (maxPerDepth == Integer.MAX_VALUE) {
+            return false;
+        }
+        AtomicInteger count = perDepth.get(depth);
+        return count != null && count.get() >= maxPerDepth;
+    }
+}
@@ -0,0 +1,292 @@
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+// Compact home for allResults. Each directory that holds a result is interned once as (parent node, name);
+// a result is just its directory node, its own name bytes and a few primitives, all in parallel arrays.
+// Absolute paths are rebuilt from the node chain only when someone asks for one.
+public class ResultStore {
+    private static final byte DIRECTORY = 1;
+    private static final byte REGULAR_FILE = 2;
+
+    // Directory nodes; the topmost node's name is the file system root itself, e.g. "/" or "C:\".
+    // directorySlots finds a node by (parent node, name): open addressing over node id + 1, 0 for a free slot.
+    private int[] directorySlots = new int[512];
+    private int directoryCount;
+    private int[] directoryParent = new int[256];
+    private int[] directoryNameStart = new int[256];
+    private int[] directoryNameLength = new int[256];
+
+    private int size;
+    private int[] resultDirectory = new int[1024];
+    private int[] resultNameStart = new int[1024];
+    private int[] resultNameLength = new int[1024];
+    private byte[] resultFlags = new byte[1024];
+    private long[] resultSize = new long[1024];
+    private long[] resultLastModified = new long[1024];
+
+    // Optional per-result int lists
+    private final IntRuns matchedPatterns = new IntRuns();
+    private final IntRuns matchedLines = new IntRuns();
+    private int[] resultDuplicateGroup; // Allocated with the first result in a duplicate group
+    private long[] resultFileCount; // du mode only; allocated with the first result that has a count
+    // Results arrive clustered by directory, so the last directory looked up saves most of the interning
+    private Path lastDirectory;
+    private int lastDirectoryId;
+
+    // Names of both directories and results, UTF-8
+    private byte[] names = new byte[64 * 1024];
+    private int namesLength;
+
+    public int add(SearchResult result) {
+        Path path = result.getPath().toAbsolutePath();
+        if (size == resultDirectory.length) {
+            int capacity = size * 2;
+            resultDirectory = Arrays.copyOf(resultDirectory, capacity);
+            resultNameStart = Arrays.copyOf(resultNameStart, capacity);
+            resultNameLength = Arrays.copyOf(resultNameLength, capacity);
+            resultFlags = Arrays.copyOf(resultFlags, capacity);
+            resultSize = Arrays.copyOf(resultSize, capacity);
+            resultLastModified = Arrays.copyOf(resultLastModified, capacity);
+        }
+
+        int index = size++;
+        resultDirectory[index] = path.getParent() == null ? -1 : internDirectory(path.getParent());
+        resultNameStart[index] = namesLength;
+        resultNameLength[index] = appendName(nameOf(path));
+        resultFlags[index] = (byte) ((result.isDirectory() ? DIRECTORY : 0) | (result.isFile() ? REGULAR_FILE : 0));
+        resultSize[index] = result.getSize();
+        resultLastModified[index] = result.getLastModified();
+        matchedPatterns.set(index, result.getMatchedPatterns());
+        matchedLines.set(index, result.getMatchedLines());
+        if (result.getDuplicateGroup() != 0 || resultDuplicateGroup != null) {
+            if (resultDuplicateGroup == null || index >= resultDuplicateGroup.length) {
+                resultDuplicateGroup = resultDuplicateGroup == null ? new int[resultDirectory.length]
+                        : Arrays.copyOf(resultDuplicateGroup, resultDirectory.length);
+            }
+            resultDuplicateGroup[index] = result.getDuplicateGroup();
+        }
+        if (result.getFileCount() >= 0 || resultFileCount != null) {
+            if (resultFileCount == null) {
+                resultFileCount = new long[resultDirectory.length];
+                Arrays.fill(resultFileCount, -1);
+            } else if (index >= resultFileCount.length) {
+                int oldLength = resultFileCount.length;
+                resultFileCount = Arrays.copyOf(resultFileCount, resultDirectory.length);
+                Arrays.fill(resultFileCount, oldLength, resultFileCount.length, -1);
+            }
+            resultFileCount[index] = result.getFileCount();
+        }
+        return index;
+    }
+
+    private int internDirectory(Path directory) {
+        if (directory.equals(lastDirectory)) {
+            return lastDirectoryId;
+        }
+        int parentId = directory.getParent() == null ? -1 : internDirectory(directory.getParent());
+        int id = internDirectory(parentId, nameOf(directory).getBytes(StandardCharsets.UTF_8));
+        lastDirectory = directory;
+        lastDirectoryId = id;
+        return id;
+    }
+
+    private int internDirectory(int parentId, byte[] name) {
+        int mask = directorySlots.length - 1;
+        int slot = slotOf(parentId, hash(name, 0, name.length), mask);
+        while (directorySlots[slot] != 0) {
+            int id = directorySlots[slot] - 1;
+            if (directoryParent[id] == parentId && Arrays.equals(names, directoryNameStart[id],
+                    directoryNameStart[id] + directoryNameLength[id], name, 0, name.length)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (directoryCount == directoryParent.length) {
+            int capacity = directoryCount * 2;
+            directoryParent = Arrays.copyOf(directoryParent, capacity);
+            directoryNameStart = Arrays.copyOf(directoryNameStart, capacity);
+            directoryNameLength = Arrays.copyOf(directoryNameLength, capacity);
+        }
+        int id = directoryCount++;
+        directoryParent[id] = parentId;
+        directoryNameStart[id] = namesLength;
+        directoryNameLength[id] = appendName(name);
+        directorySlots[slot] = id + 1;
+        if (directoryCount * 2 > directorySlots.length) {
+            rehashDirectories();
+        }
+        return id;
+    }
+
+    private void rehashDirectories() {
+        directorySlots = new int[directorySlots.length * 2];
+        int mask = directorySlots.length - 1;
+        for (int id = 0; id < directoryCount; id++) {
+            int slot = slotOf(directoryParent[id], hash(names, directoryNameStart[id], directoryNameLength[id]), mask);
+            while (directorySlots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            directorySlots[slot] = id + 1;
+        }
+    }
+
+    private static int hash(byte[] bytes, int start, int length) {
+        int hash = 1;
+        for (int i = start; i < start + length; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        return hash;
+    }
+
+    private static int slotOf(int parentId, int nameHash, int mask) {
+        int hash = (parentId * 31 + nameHash) * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private static String nameOf(Path path) {
+        Path fileName = path.getFileName();
+        return fileName == null ? path.toString() : fileName.toString();
+    }
+
+    private int appendName(String name) {
+        return appendName(name.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private int appendName(byte[] bytes) {
+        if (namesLength + bytes.length > names.length) {
+            names = Arrays.copyOf(names, Math.max(names.length * 2, namesLength + bytes.length));
+        }
+        System.arraycopy(bytes, 0, names, namesLength, bytes.length);
+        namesLength += bytes.length;
+        return bytes.length;
+    }
+
+    public void clear() {
+        Arrays.fill(directorySlots, 0);
+        directoryCount = 0;
+        lastDirectory = null;
+        size = 0;
+        namesLength = 0;
+        matchedPatterns.clear();
+        matchedLines.clear();
+        resultDuplicateGroup = null;
+        resultFileCount = null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isDirectory(int index) {
+        return (resultFlags[index] & DIRECTORY) != 0;
+    }
+
+    public boolean isFile(int index) {
+        return (resultFlags[index] & REGULAR_FILE) != 0;
+    }
+
+    public long getSize(int index) {
+        return resultSize[index];
+    }
+
+    public long getLastModified(int index) {
+        return resultLastModified[index];
+    }
+
+    // Ids of the list patterns the result matched, null if it carries none
+    public int[] getMatchedPatterns(int index) {
+        return matchedPatterns.get(index);
+    }
+
+    // Line numbers of the content matches, null if there was no content search
+    public int[] getMatchedLines(int index) {
+        return matchedLines.get(index);
+    }
+
+    // 0 when the result is not part of a duplicate group
+    public int getDuplicateGroup(int index) {
+        return resultDuplicateGroup == null || index >= resultDuplicateGroup.length ? 0 : resultDuplicateGroup[index];
+    }
+
+    // -1 unless the result came from du mode
+    public long getFileCount(int index) {
+        return resultFileCount == null ? -1 : resultFileCount[index];
+    }
+
+    public String getName(int index) {
+        return new String(names, resultNameStart[index], resultNameLength[index], StandardCharsets.UTF_8);
+    }
+
+    public String getAbsolutePath(int index) {
+        StringBuilder path = new StringBuilder();
+        appendDirectory(path, resultDirectory[index]);
+        appendSegment(path, resultNameStart[index], resultNameLength[index]);
+        return path.toString();
+    }
+
+    private void appendDirectory(StringBuilder path, int id) {
+        if (id < 0) {
+            return;
+        }
+        appendDirectory(path, directoryParent[id]);
+        appendSegment(path, directoryNameStart[id], directoryNameLength[id]);
+    }
+
+    private void appendSegment(StringBuilder path, int start, int length) {
+        if (path.length() > 0 && path.charAt(path.length() - 1) != File.separatorChar) {
+            path.append(File.separatorChar);
+        }
+        path.append(new String(names, start, length, StandardCharsets.UTF_8));
+    }
+
+    // One optional int list per result, stored as [count, value...] runs in a single arena. Nothing is
+    // allocated until the first result that carries a list.
+    private static class IntRuns {
+        private int[] start; // Per result, -1 for none
+        private int[] values;
+        private int length;
+
+        void set(int index, int[] list) {
+            if (list == null && start == null) {
+                return;
+            }
+            if (start == null) {
+                start = new int[Math.max(1024, index + 1)];
+                Arrays.fill(start, -1);
+                values = new int[1024];
+            } else if (index >= start.length) {
+                int oldLength = start.length;
+                start = Arrays.copyOf(start, Math.max(oldLength * 2, index + 1));
+                Arrays.fill(start, oldLength, start.length, -1);
+            }
+            if (list == null) {
+                start[index] = -1;
+                return;
+            }
+            if (length + list.length + 1 > values.length) {
+                values = Arrays.copyOf(values, Math.max(values.length * 2, length + list.length + 1));
+            }
+            start[index] = length;
+            values[length++] = list.length;
+            System.arraycopy(list, 0, values, length, list.length);
+            length += list.length;
+        }
+
+        int[] get(int index) {
+            if (start == null || index >= start.length || start[index] < 0) {
+                return null;
+            }
+            int first = start[index];
+            return Arrays.copyOfRange(values, first + 1, first + 1 + values[first]);
+        }
+
+        void clear() {
+            start = null;
+            values = null;
+            length = 0;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Table model that reads rows straight from the ResultStore instead of copying them into Vectors.
+// Only the indices of the rows that pass the File/Folder filter are kept, and cell values are built
+// when the table asks for a visible row.
+public class ResultTableModel extends AbstractTableModel {
+    private final ResultStore results;
+    private int[] visibleRows = new int[1024];
+    private int visibleCount = 0;
+    private boolean showFiles;
+    private boolean showFolders;
+    private MultiPatternMatcher patterns; // Adds the "Patterns" column when set
+    private boolean showLines;            // Adds the "Lines" column for content searches
+    private boolean showDuplicates;       // Adds "Duplicate Group" and "Size" for duplicate searches
+    private boolean showTotals;           // Adds "Size" and "Files" in du mode
+    private List<Column> columns = List.of(Column.PATH);
+
+    private enum Column {
+        PATH("Absolute Path"),
+        PATTERNS("Patterns"),
+        LINES("Lines"),
+        DUPLICATE_GROUP("Duplicate Group"),
+        SIZE("Size"),
+        FILES("Files");
+
+        private final String title;
+
+        Column(String title) {
+            this.title = title;
+        }
+    }
+
+    public ResultTableModel(ResultStore results, boolean showFiles, boolean showFolders) {
+        this.results = results;
+        this.showFiles = showFiles;
+        this.showFolders = showFolders;
+    }
+
+    // Appends a batch and announces all of its visible rows with a single event
+    public void addAll(List<SearchResult> chunk) {
+        int firstNew = visibleCount;
+        for (SearchResult result : chunk) {
+            int index = results.add(result);
+            if (isShown(index)) {
+                addVisibleRow(index);
+            }
+        }
+        if (visibleCount > firstNew) {
+            fireTableRowsInserted(firstNew, visibleCount - 1);
+        }
+    }
+
+    public void clear() {
+        results.clear();
+        visibleCount = 0;
+        fireTableDataChanged();
+    }
+
+    public void setFilter(boolean showFiles, boolean showFolders) {
+        this.showFiles = showFiles;
+        this.showFolders = showFolders;
+        visibleCount = 0;
+        for (int i = 0; i < results.size(); i++) {
+            if (isShown(i)) {
+                addVisibleRow(i);
+            }
+        }
+        fireTableDataChanged();
+    }
+
+    private boolean isShown(int index) {
+        return (results.isFile(index) && showFiles) || (results.isDirectory(index) && showFolders);
+    }
+
+    private void addVisibleRow(int index) {
+        if (visibleCount == visibleRows.length) {
+            visibleRows = Arrays.copyOf(visibleRows, visibleCount * 2);
+        }
+        visibleRows[visibleCount++] = index;
+    }
+
+    public void setPatterns(MultiPatternMatcher patterns) {
+        this.patterns = patterns;
+        updateColumns();
+    }
+
+    public void setShowLines(boolean showLines) {
+        this.showLines = showLines;
+        updateColumns();
+    }
+
+    public void setShowDuplicates(boolean showDuplicates) {
+        this.showDuplicates = showDuplicates;
+        updateColumns();
+    }
+
+    public void setShowTotals(boolean showTotals) {
+        this.showTotals = showTotals;
+        updateColumns();
+    }
+
+    private void updateColumns() {
+        List<Column> newColumns = new ArrayList<>();
+        newColumns.add(Column.PATH);
+        if (patterns != null) {
+            newColumns.add(Column.PATTERNS);
+        }
+        if (showLines) {
+            newColumns.add(Column.LINES);
+        }
+        if (showDuplicates) {
+            newColumns.add(Column.DUPLICATE_GROUP);
+        }
+        if (showDuplicates || showTotals) {
+            newColumns.add(Column.SIZE);
+        }
+        if (showTotals) {
+            newColumns.add(Column.FILES);
+        }
+        if (!newColumns.equals(columns)) {
+            columns = newColumns;
+            fireTableStructureChanged();
+        }
+    }
+
+    // Index in the ResultStore of a table row
+    public int getResultIndex(int row) {
+        return visibleRows[row];
+    }
+
+    @Override
+    public int getRowCount() {
+        return visibleCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns.size();
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columns.get(column).title;
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        switch (columns.get(column)) {
+            case DUPLICATE_GROUP:
+                return Integer.class;
+            case SIZE:
+            case FILES:
+                return Long.class;
+            default:
+                return String.class;
+        }
+    }
+
+    // Numeric columns only; sorting by path would rebuild every path string on each comparison
+    public boolean isSortable(int column) {
+        return getColumnClass(column) != String.class;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        int index = visibleRows[row];
+        switch (columns.get(column)) {
+            case PATTERNS:
+                int[] ids = results.getMatchedPatterns(index);
+                return ids == null ? "" : patterns.describe(ids);
+            case LINES:
+                return describeLines(results.getMatchedLines(index));
+            case DUPLICATE_GROUP:
+                return results.getDuplicateGroup(index);
+            case SIZE:
+                return results.getSize(index);
+            case FILES:
+                return results.getFileCount(index);
+            default:
+                return results.getAbsolutePath(index);
+        }
+    }
+
+    private static String describeLines(int[] lines) {
+        if (lines == null) {
+            return "";
+        }
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < lines.length && i < 20; i++) {
+            text.append(i == 0 ? "" : ", ").append(lines[i]);
+        }
+        if (lines.length > 20) {
+            text.append(" (+").append(lines.length - 20).append(")");
+        }
+        return text.toString();
+    }
+}
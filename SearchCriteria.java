@@ -0,0 +1,131 @@
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.regex.Pattern;
+
+public class SearchCriteria {
+    private final Pattern regexPattern;
+    private final NameMatcher nameMatcher;
+    private MultiPatternMatcher namePatterns;
+    private ExcludeRules excludeRules;
+    private ResultLimiter resultLimiter;
+    private boolean followLinks = false;
+    private final int minRecursionDepth;
+    private final int maxRecursionDepth;
+    private final int maxHorizontal;
+    private long minDateModified = Long.MIN_VALUE;
+    private long maxDateModified = Long.MAX_VALUE;
+
+    public SearchCriteria(Pattern regexPattern, int minRecursionDepth, int maxRecursionDepth, int maxHorizontal) {
+        this.regexPattern = regexPattern;
+        this.nameMatcher = NameMatcher.compile(regexPattern, false);
+        this.minRecursionDepth = minRecursionDepth;
+        this.maxRecursionDepth = maxRecursionDepth;
+        this.maxHorizontal = maxHorizontal;
+    }
+
+    // Bounds are epoch millis, inclusive
+    public void setDateModifiedRange(long minDateModified, long maxDateModified) {
+        this.minDateModified = minDateModified;
+        this.maxDateModified = maxDateModified;
+    }
+
+    // Names must also contain at least one of these patterns; results are tagged with the ones they match
+    public void setNamePatterns(MultiPatternMatcher namePatterns) {
+        this.namePatterns = namePatterns;
+    }
+
+    // Null for none
+    public void setExcludeRules(ExcludeRules excludeRules) {
+        this.excludeRules = excludeRules;
+    }
+
+    // An excluded entry is skipped before it is matched, and a directory is not listed
+    public boolean isExcluded(Path entry, int depth) {
+        return excludeRules != null && excludeRules.excludes(entry, depth);
+    }
+
+    // Null for none; set by SearchOptions.runSearch for -maxResults= and -maxPerDepth=
+    public void setResultLimiter(ResultLimiter resultLimiter) {
+        this.resultLimiter = resultLimiter;
+    }
+
+    // Every further match at this depth would be dropped by the limit stage, so there is no point matching
+    public boolean isDepthFull(int depth) {
+        return resultLimiter != null && resultLimiter.isDepthFull(depth);
+    }
+
+    // Symbolic links are matched as what they point to and followed into directories; each directory is
+    // still listed only once, see VisitedDirectories
+    public void setFollowLinks(boolean followLinks) {
+        this.followLinks = followLinks;
+    }
+
+    public boolean isFollowLinks() {
+        return followLinks;
+    }
+
+    // A directory at this depth may be listed
+    public boolean canDescend(int depth) {
+        return depth <= maxRecursionDepth;
+    }
+
+    public boolean matches(String name, BasicFileAttributes attributes, int depth) {
+        if (depth < minRecursionDepth || !matchesName(name)) {
+            return false;
+        }
+        return !hasDateRange() || isInDateRange(attributes.lastModifiedTime().toMillis());
+    }
+
+    // Same test for a name and mtime already in hand (e.g. from the index)
+    public boolean matches(CharSequence name, long lastModified, int depth) {
+        return depth >= minRecursionDepth && matchesName(name) && isInDateRange(lastModified);
+    }
+
+    private boolean matchesName(CharSequence name) {
+        return nameMatcher.matches(name) && (namePatterns == null || namePatterns.matchesAny(name));
+    }
+
+    // Records which patterns of the list a matched result hit
+    public SearchResult tag(SearchResult result) {
+        if (namePatterns != null) {
+            result.setMatchedPatterns(namePatterns.match(result.getName()));
+        }
+        return result;
+    }
+
+    private boolean hasDateRange() {
+        return minDateModified != Long.MIN_VALUE || maxDateModified != Long.MAX_VALUE;
+    }
+
+    private boolean isInDateRange(long lastModified) {
+        return lastModified >= minDateModified && lastModified <= maxDateModified;
+    }
+
+    public Pattern getRegexPattern() {
+        return regexPattern;
+    }
+
+    public NameMatcher getNameMatcher() {
+        return nameMatcher;
+    }
+
+    public ExcludeRules getExcludeRules() {
+        return excludeRules;
+    }
+
+    public MultiPatternMatcher getNamePatterns() {
+        return namePatterns;
+    }
+
+    public int getMinRecursionDepth() {
+        return minRecursionDepth;
+    }
+
+    public int getMaxRecursionDepth() {
+        return maxRecursionDepth;
+    }
+
+    public int getMaxHorizontal() {
+        return maxHorizontal;
+    }
+}
@@ -0,0 +1,8 @@
+import java.io.IOException;
+import java.nio.file.Path;
+
+public interface SearchEngine {
+    // Blocks until the whole tree under root has been searched or the sink is cancelled. Unreadable entries are
+    // skipped; an IOException means the search as a whole could not be carried out.
+    void search(Path root, SearchCriteria criteria, SearchSink sink, SearchStats stats) throws IOException;
+}
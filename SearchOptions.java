@@ -0,0 +1,332 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+// The options of FileExplorerApp's command field, parsed once and shared with FileSearchCLI.
+// Malformed values fall back to their defaults; problems that deserve a message are collected in getProblems().
+public class SearchOptions {
+    private static final String ISO_DATE_FORMAT = "yyyy-MM-dd-HH-mm-ssXXX";
+
+    private int maxRecursionDepth = Integer.MAX_VALUE;
+    private int minRecursionDepth = 0;
+    private int maxHorizontal = Integer.MAX_VALUE;
+    private long maxResults = Long.MAX_VALUE;
+    private int maxPerDepth = Integer.MAX_VALUE;
+    private String engineName = "recursive";
+    private boolean engineGiven = false;
+    private String order = "dfs"; // dfs leaves the walk to the engine; see DirectoryFrontier for the others
+    private boolean orderConflictReported = false;
+    private boolean sizesConflictReported = false;
+    private int frontierLimit = 1_000_000;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private int ioConcurrency = 64;
+    private boolean rebuildIndex = false;
+    private boolean watchIndex = true;
+    private long minDateModified = Long.MIN_VALUE;
+    private long maxDateModified = Long.MAX_VALUE;
+    private final List<String> namePatterns = new ArrayList<>(); // From -patterns= and -patternFile=; empty for none
+    private Pattern contentPattern = null; // -content=; null searches names only
+    private long contentBudget = 256L * 1024 * 1024;
+    private boolean findDuplicates = false;
+    private boolean directorySizes = false;
+    private final ExcludeRules excludeRules = new ExcludeRules();
+    private boolean excluding = false; // Any -exclude= or -xdev
+    private boolean followLinks = false;
+    private Path exportFile = null;
+    private ResultExporter.Format exportFormat = null; // From the file's extension unless -exportFormat= is given
+    private boolean exportOnly = false;
+    private final List<String> problems = new ArrayList<>();
+
+    public static SearchOptions parse(String commands) {
+        SearchOptions options = new SearchOptions();
+        for (String command : commands.trim().split("\\s+")) {
+            options.parseCommand(command);
+        }
+        return options;
+    }
+
+    // Returns false if the command is not one of these options
+    public boolean parseCommand(String command) {
+        if (command.startsWith("-maxRecursionDepth=")) {
+            try {
+                maxRecursionDepth = Integer.parseInt(command.substring(19));
+            } catch (NumberFormatException e) {
+                maxRecursionDepth = Integer.MAX_VALUE;
+            }
+        } else if (command.startsWith("-minRecursionDepth=")) {
+            try {
+                minRecursionDepth = Integer.parseInt(command.substring(19));
+            } catch (NumberFormatException e) {
+                minRecursionDepth = 0;
+            }
+        } else if (command.startsWith("-maxHorizontal=")) {
+            try {
+                maxHorizontal = Integer.parseInt(command.substring(15));
+            } catch (NumberFormatException e) {
+                maxHorizontal = Integer.MAX_VALUE;
+            }
+        } else if (command.startsWith("-maxResults=")) {
+            try {
+                maxResults = Math.max(0, Long.parseLong(command.substring(12)));
+            } catch (NumberFormatException e) {
+                maxResults = Long.MAX_VALUE;
+            }
+        } else if (command.startsWith("-maxPerDepth=")) {
+            try {
+                maxPerDepth = Math.max(0, Integer.parseInt(command.substring(13)));
+            } catch (NumberFormatException e) {
+                maxPerDepth = Integer.MAX_VALUE;
+            }
+        } else if (command.startsWith("-engine=")) {
+            engineName = command.substring(8).toLowerCase();
+            engineGiven = true;
+            checkOrderConflict();
+            checkSizesConflict();
+        } else if (command.startsWith("-order=")) {
+            String value = command.substring(7).toLowerCase();
+            if (value.equals("dfs") || DirectoryFrontier.create(value, 2) != null) {
+                order = value;
+                checkOrderConflict();
+                checkSizesConflict();
+            } else {
+                problems.add("Unknown order: " + value);
+            }
+        } else if (command.startsWith("-frontierLimit=")) {
+            // Directories kept in memory by -order= before the rest is spilled to disk
+            try {
+                frontierLimit = Math.max(2, Integer.parseInt(command.substring(15)));
+            } catch (NumberFormatException e) {
+                frontierLimit = 1_000_000;
+            }
+        } else if (command.startsWith("-parallelism=")) {
+            try {
+                parallelism = Math.max(1, Integer.parseInt(command.substring(13)));
+            } catch (NumberFormatException e) {
+                parallelism = Runtime.getRuntime().availableProcessors();
+            }
+        } else if (command.startsWith("-ioConcurrency=")) {
+            try {
+                ioConcurrency = Math.max(1, Integer.parseInt(command.substring(15)));
+            } catch (NumberFormatException e) {
+                ioConcurrency = 64;
+            }
+        } else if (command.equals("-reindex")) {
+            rebuildIndex = true;
+        } else if (command.startsWith("--mindateModified=")) {
+            try {
+                minDateModified = parseDate(command.substring(18));
+            } catch (ParseException e) {
+                minDateModified = Long.MIN_VALUE;
+            }
+        } else if (command.startsWith("--maxdateModified=")) {
+            try {
+                maxDateModified = parseDate(command.substring(18));
+            } catch (ParseException e) {
+                maxDateModified = Long.MAX_VALUE;
+            }
+        } else if (command.startsWith("-patterns=")) {
+            for (String namePattern : command.substring(10).split(",")) {
+                if (!namePattern.isEmpty()) {
+                    namePatterns.add(namePattern);
+                }
+            }
+        } else if (command.startsWith("-patternFile=")) {
+            // One pattern per line, so patterns may contain spaces and commas
+            try {
+                for (String line : Files.readAllLines(Paths.get(command.substring(13)))) {
+                    if (!line.isEmpty()) {
+                        namePatterns.add(line);
+                    }
+                }
+            } catch (IOException e) {
+                problems.add("Could not read pattern file: " + e.getMessage());
+            }
+        } else if (command.startsWith("-content=")) {
+            try {
+                contentPattern = Pattern.compile(command.substring(9));
+            } catch (PatternSyntaxException e) {
+                problems.add("Content regex syntax error: " + e.getDescription());
+            }
+        } else if (command.startsWith("-contentBudget=")) {
+            // Megabytes of file data queued or being searched at once
+            try {
+                contentBudget = Math.max(1, Long.parseLong(command.substring(15))) * 1024 * 1024;
+            } catch (NumberFormatException e) {
+                contentBudget = 256L * 1024 * 1024;
+            }
+        } else if (command.equals("-duplicates")) {
+            findDuplicates = true;
+        } else if (command.equals("-du")) {
+            directorySizes = true;
+            checkSizesConflict();
+        } else if (command.startsWith("-exclude=")) {
+            // Comma-separated globs (or regex: patterns) on names, or on paths below the root if they have a '/'
+            for (String excludePattern : command.substring(9).split(",")) {
+                if (!excludePattern.isEmpty()) {
+                    try {
+                        excludeRules.add(excludePattern);
+                        excluding = true;
+                    } catch (IllegalArgumentException e) {
+                        problems.add("Exclude pattern syntax error: " + excludePattern);
+                    }
+                }
+            }
+        } else if (command.equals("-xdev")) {
+            excludeRules.setSameFileSystem(true);
+            excluding = true;
+        } else if (command.equals("-followLinks")) {
+            followLinks = true;
+        } else if (command.startsWith("-export=")) {
+            exportFile = Paths.get(command.substring(8));
+        } else if (command.startsWith("-exportFormat=")) {
+            try {
+                exportFormat = ResultExporter.Format.valueOf(command.substring(14).toUpperCase());
+            } catch (IllegalArgumentException e) {
+                problems.add("Unknown export format: " + command.substring(14));
+            }
+        } else if (command.equals("-exportOnly")) {
+            exportOnly = true;
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    // -order= other than dfs runs its own walk, so an explicit -engine= would be silently ignored
+    private void checkOrderConflict() {
+        if (engineGiven && !order.equals("dfs") && !orderConflictReported) {
+            orderConflictReported = true;
+            problems.add("-order=" + order + " cannot be combined with -engine=" + engineName);
+        }
+    }
+
+    // -du always runs DirectorySizer, which would silently ignore both
+    private void checkSizesConflict() {
+        if (directorySizes && (engineGiven || !order.equals("dfs")) && !sizesConflictReported) {
+            sizesConflictReported = true;
+            problems.add("-du cannot be combined with -order= or -engine=");
+        }
+    }
+
+    private static long parseDate(String dateStr) throws ParseException {
+        return new SimpleDateFormat(ISO_DATE_FORMAT).parse(dateStr).getTime();
+    }
+
+    public SearchEngine createEngine() {
+        if (directorySizes) {
+            return new DirectorySizer(parallelism);
+        } else if (!order.equals("dfs")) {
+            return new OrderedSearchEngine(order, frontierLimit);
+        } else if (engineName.equals("forkjoin")) {
+            return new ForkJoinSearchEngine(parallelism);
+        } else if (engineName.equals("nio")) {
+            return new NioSearchEngine();
+        } else if (engineName.equals("virtual")) {
+            return new VirtualThreadSearchEngine(ioConcurrency);
+        } else if (engineName.equals("index")) {
+            return new IndexSearchEngine(rebuildIndex, watchIndex);
+        }
+        return new RecursiveSearchEngine();
+    }
+
+    // Null when no pattern list was given
+    public MultiPatternMatcher createPatternList() {
+        return namePatterns.isEmpty() ? null : new MultiPatternMatcher(namePatterns);
+    }
+
+    // Runs the engine with the optional stages in front of sink: engine -> content -> duplicates -> limits -> export -> sink.
+    // With -exportOnly, sink sees nothing. Throws if the engine fails or the export file cannot be written; a
+    // search that fails either way leaves no export file behind.
+    public void runSearch(Path root, SearchCriteria criteria, SearchSink sink, SearchStats stats) throws IOException {
+        ResultExporter exporter = null;
+        if (exportFile != null) {
+            exporter = new ResultExporter(exportFile, exportFormat != null ? exportFormat : ResultExporter.Format.forFile(exportFile),
+                    criteria.getNamePatterns(), exportOnly ? null : sink, stats);
+            sink = exporter;
+        }
+        boolean exported = false;
+        try {
+            runStages(root, criteria, sink, stats);
+            if (exporter != null) {
+                exporter.finish();
+            }
+            exported = true;
+        } finally {
+            if (exporter != null && !exported) {
+                exporter.abort();
+            }
+        }
+    }
+
+    // Everything in front of the export stage
+    private void runStages(Path root, SearchCriteria criteria, SearchSink sink, SearchStats stats) throws IOException {
+        if (maxResults != Long.MAX_VALUE || maxPerDepth != Integer.MAX_VALUE) {
+            ResultLimiter limiter = new ResultLimiter(maxResults, maxPerDepth, sink);
+            criteria.setResultLimiter(limiter);
+            sink = limiter;
+        }
+        DuplicateFinder duplicateFinder = findDuplicates ? new DuplicateFinder(parallelism, sink, stats) : null;
+        SearchSink next = duplicateFinder != null ? duplicateFinder : sink;
+        ContentSearcher contentSearcher = contentPattern != null ? new ContentSearcher(contentPattern, parallelism, contentBudget, next, stats) : null;
+        boolean searched = false;
+        try {
+            createEngine().search(root, criteria, contentSearcher != null ? contentSearcher : next, stats);
+            searched = true;
+        } finally {
+            // The worker pool must not outlive a search that failed
+            if (contentSearcher != null) {
+                if (searched) {
+                    contentSearcher.finish();
+                } else {
+                    contentSearcher.abort();
+                }
+            }
+        }
+        if (duplicateFinder != null) {
+            duplicateFinder.finish();
+        }
+    }
+
+    public boolean hasContentPattern() {
+        return contentPattern != null;
+    }
+
+    public boolean isFindDuplicates() {
+        return findDuplicates;
+    }
+
+    // du mode: directories with the total size and file count below them instead of matching entries
+    public boolean isDirectorySizes() {
+        return directorySizes;
+    }
+
+    // Null without -export=
+    public Path getExportFile() {
+        return exportFile;
+    }
+
+    public SearchCriteria createCriteria(Pattern regexPattern, MultiPatternMatcher patternList) {
+        SearchCriteria criteria = new SearchCriteria(regexPattern, minRecursionDepth, maxRecursionDepth, maxHorizontal);
+        criteria.setDateModifiedRange(minDateModified, maxDateModified);
+        criteria.setNamePatterns(patternList);
+        criteria.setExcludeRules(excluding ? excludeRules : null);
+        criteria.setFollowLinks(followLinks);
+        return criteria;
+    }
+
+    // One-shot runs have no use for a maintainer watching the indexed tree
+    public void setWatchIndex(boolean watchIndex) {
+        this.watchIndex = watchIndex;
+    }
+
+    public List<String> getProblems() {
+        return problems;
+    }
+}
@@ -0,0 +1,99 @@
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+// A match together with the attributes read while listing its directory, so nothing downstream stats it again
+public class SearchResult {
+    private final Path path;
+    private final int depth;
+    private final boolean directory;
+    private final boolean regularFile;
+    private final long size;
+    private final long lastModified;
+    private int[] matchedPatterns; // Ids in the search's pattern list, null without one
+    private int[] matchedLines;    // 1-based, from the content search; null without one
+    private int duplicateGroup;    // 1-based, from the duplicate search; 0 without one
+    private long fileCount = -1;   // Files below a directory in du mode, where size is their total; -1 otherwise
+
+    public SearchResult(Path path, BasicFileAttributes attributes, int depth) {
+        this.path = path;
+        this.depth = depth;
+        this.directory = attributes.isDirectory();
+        this.regularFile = attributes.isRegularFile();
+        this.size = attributes.size();
+        this.lastModified = attributes.lastModifiedTime().toMillis();
+    }
+
+    public SearchResult(Path path, boolean directory, boolean regularFile, long size, long lastModified, int depth) {
+        this.path = path;
+        this.depth = depth;
+        this.directory = directory;
+        this.regularFile = regularFile;
+        this.size = size;
+        this.lastModified = lastModified;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public String getName() {
+        return path.getFileName().toString();
+    }
+
+    public String getAbsolutePath() {
+        return path.toAbsolutePath().toString();
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public boolean isDirectory() {
+        return directory;
+    }
+
+    // Like File.isFile(): false for directories and for devices, pipes and sockets
+    public boolean isFile() {
+        return regularFile;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public int[] getMatchedPatterns() {
+        return matchedPatterns;
+    }
+
+    public void setMatchedPatterns(int[] matchedPatterns) {
+        this.matchedPatterns = matchedPatterns;
+    }
+
+    public int[] getMatchedLines() {
+        return matchedLines;
+    }
+
+    public void setMatchedLines(int[] matchedLines) {
+        this.matchedLines = matchedLines;
+    }
+
+    public int getDuplicateGroup() {
+        return duplicateGroup;
+    }
+
+    public void setDuplicateGroup(int duplicateGroup) {
+        this.duplicateGroup = duplicateGroup;
+    }
+
+    public long getFileCount() {
+        return fileCount;
+    }
+
+    public void setFileCount(long fileCount) {
+        this.fileCount = fileCount;
+    }
+}
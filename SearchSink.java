@@ -0,0 +1,6 @@
+// Receives matches from a SearchEngine; may be called from several threads at once
+public interface SearchSink {
+    void accept(SearchResult result);
+
+    boolean isCancelled();
+}
@@ -0,0 +1,103 @@
+import java.util.concurrent.atomic.LongAdder;
+
+// Counters behind the stats panel; engines bump them from any thread, the EDT reads them on a timer
+public class SearchStats {
+    private final LongAdder filesScanned = new LongAdder();
+    private final LongAdder foldersScanned = new LongAdder();
+    private final LongAdder filesMatched = new LongAdder();
+    private final LongAdder foldersMatched = new LongAdder();
+    // Content stage, see ContentSearcher
+    private final LongAdder contentBytesSearched = new LongAdder();
+    private final LongAdder contentFilesMatched = new LongAdder();
+    private final LongAdder binaryFilesSkipped = new LongAdder();
+    // Duplicate stage, see DuplicateFinder
+    private final LongAdder duplicateBytesRead = new LongAdder();
+    private final LongAdder duplicateGroups = new LongAdder();
+    private final LongAdder reclaimableBytes = new LongAdder();
+    // Export stage, see ResultExporter
+    private final LongAdder resultsExported = new LongAdder();
+
+    public void scanned(boolean directory) {
+        (directory ? foldersScanned : filesScanned).increment();
+    }
+
+    public void matched(boolean directory) {
+        (directory ? foldersMatched : filesMatched).increment();
+    }
+
+    // Bulk form for engines that count a whole batch before reporting
+    public void addScanned(long files, long folders) {
+        filesScanned.add(files);
+        foldersScanned.add(folders);
+    }
+
+    public void contentSearched(long bytes) {
+        contentBytesSearched.add(bytes);
+    }
+
+    public void contentMatched() {
+        contentFilesMatched.increment();
+    }
+
+    public void binarySkipped() {
+        binaryFilesSkipped.increment();
+    }
+
+    public void duplicateBytesRead(long bytes) {
+        duplicateBytesRead.add(bytes);
+    }
+
+    // One more group of identical files, which would free this many bytes if all but one copy went
+    public void duplicateGroup(long reclaimable) {
+        duplicateGroups.increment();
+        reclaimableBytes.add(reclaimable);
+    }
+
+    public void exported() {
+        resultsExported.increment();
+    }
+
+    public long getFilesScanned() {
+        return filesScanned.sum();
+    }
+
+    public long getFoldersScanned() {
+        return foldersScanned.sum();
+    }
+
+    public long getFilesMatched() {
+        return filesMatched.sum();
+    }
+
+    public long getFoldersMatched() {
+        return foldersMatched.sum();
+    }
+
+    public long getContentBytesSearched() {
+        return contentBytesSearched.sum();
+    }
+
+    public long getContentFilesMatched() {
+        return contentFilesMatched.sum();
+    }
+
+    public long getBinaryFilesSkipped() {
+        return binaryFilesSkipped.sum();
+    }
+
+    public long getDuplicateBytesRead() {
+        return duplicateBytesRead.sum();
+    }
+
+    public long getDuplicateGroups() {
+        return duplicateGroups.sum();
+    }
+
+    public long getReclaimableBytes() {
+        return reclaimableBytes.sum();
+    }
+
+    public long getResultsExported() {
+        return resultsExported.sum();
+    }
+}
@@ -0,0 +1,101 @@
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Every directory listing runs on its own virtual thread, so blocking reads on slow storage overlap.
+// The semaphore caps how many listings are in flight against the disk at once.
+// Virtual threads need JDK 21. The executor is looked up reflectively so the rest of the app still builds and
+// runs on 17, where this engine falls back to ioConcurrency platform threads.
+public class VirtualThreadSearchEngine implements SearchEngine {
+    private final int ioConcurrency;
+
+    public VirtualThreadSearchEngine(int ioConcurrency) {
+        this.ioConcurrency = Math.max(1, ioConcurrency);
+    }
+
+    @Override
+    public void search(Path root, SearchCriteria criteria, SearchSink sink, SearchStats stats) {
+        if (!criteria.canDescend(0)) {
+            return;
+        }
+
+        Crawl crawl = new Crawl(new DirectoryScanner(root, criteria, sink, stats), sink, ioConcurrency);
+        try {
+            crawl.submit(root, 0);
+            crawl.finished.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            crawl.executor.shutdownNow();
+        }
+    }
+
+    private static class Crawl {
+        private final DirectoryScanner scanner;
+        private final SearchSink sink;
+        private final Semaphore listingPermits;
+        private final ExecutorService executor;
+        // Directories submitted but not yet scanned; the crawl is done when this drops to zero
+        private final AtomicInteger pending = new AtomicInteger();
+        private final CountDownLatch finished = new CountDownLatch(1);
+
+        Crawl(DirectoryScanner scanner, SearchSink sink, int ioConcurrency) {
+            this.scanner = scanner;
+            this.sink = sink;
+            this.listingPermits = new Semaphore(ioConcurrency);
+            this.executor = newExecutor(ioConcurrency);
+        }
+
+        private static ExecutorService newExecutor(int ioConcurrency) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                return Executors.newFixedThreadPool(ioConcurrency);
+            }
+        }
+
+        void submit(Path directory, int depth) {
+            pending.incrementAndGet();
+            try {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            scan(directory, depth);
+                        } finally {
+                            if (pending.decrementAndGet() == 0) {
+                                finished.countDown();
+                            }
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // The search was abandoned and the executor shut down underneath us
+                pending.decrementAndGet();
+            }
+        }
+
+        private void scan(Path directory, int depth) {
+            if (sink.isCancelled()) {
+                return;
+            }
+
+            try {
+                listingPermits.acquire();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                for (Path subdirectory : scanner.scan(directory, depth)) {
+                    submit(subdirectory, depth + 1);
+                }
+            } finally {
+                listingPermits.release();
+            }
+        }
+    }
+}
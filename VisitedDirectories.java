@@ -0,0 +1,95 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+// Directories already listed by a walk that follows symbolic links, so a link back up the tree or a second
+// path to the same directory (another link, a bind mount) is not listed again. Directories are told apart by
+// device and inode: one open-addressing set of inode numbers per device, 8 bytes a slot, so tens of millions
+// of directories fit in a few hundred MB. Where the platform has no inode numbers the fileKey, or failing
+// that the real path, goes into an ordinary set. Engines share one instance across threads.
+public class VisitedDirectories {
+    private final Map<Long, InodeSet> devices = new HashMap<>();
+    private final Set<Object> otherKeys = new HashSet<>();
+
+    // False if the directory was seen before, or cannot be identified at all
+    public boolean add(Path directory) {
+        long device;
+        long inode;
+        try {
+            Map<String, Object> attributes = Files.readAttributes(directory, "unix:dev,ino");
+            device = (Long) attributes.get("dev");
+            inode = (Long) attributes.get("ino");
+        } catch (UnsupportedOperationException | IllegalArgumentException | IOException e) {
+            return addOtherKey(directory);
+        }
+        synchronized (this) {
+            InodeSet inodes = devices.get(device);
+            if (inodes == null) {
+                inodes = new InodeSet();
+                devices.put(device, inodes);
+            }
+            return inodes.add(inode);
+        }
+    }
+
+    private boolean addOtherKey(Path directory) {
+        Object key;
+        try {
+            key = Files.readAttributes(directory, BasicFileAttributes.class).fileKey();
+            if (key == null) {
+                key = directory.toRealPath().toString();
+            }
+        } catch (IOException e) {
+            return false;
+        }
+        synchronized (this) {
+            return otherKeys.add(key);
+        }
+    }
+
+    // Linear probing over a power-of-two table kept at most half full; 0 marks a free slot, so inode 0 has a flag
+    private static class InodeSet {
+        private long[] table = new long[1024];
+        private int size;
+        private boolean hasZero;
+
+        boolean add(long inode) {
+            if (inode == 0) {
+                boolean added = !hasZero;
+                hasZero = true;
+                return added;
+            }
+            if (!insert(table, inode)) {
+                return false;
+            }
+            if (++size * 2 > table.length) {
+                long[] larger = new long[table.length * 2];
+                for (long value : table) {
+                    if (value != 0) {
+                        insert(larger, value);
+                    }
+                }
+                table = larger;
+            }
+            return true;
+        }
+
+        private static boolean insert(long[] table, long inode) {
+            int mask = table.length - 1;
+            int slot = (int) ((inode * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+            while (table[slot] != 0) {
+                if (table[slot] == inode) {
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = inode;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+import java.util.function.Consumer;
+
+// A real SearchSink for benchmarks.Bridge. It lives in the unnamed package so it can implement the interface;
+// SearchSink has two abstract methods, so LambdaMetafactory cannot spin one up.
+public class BenchmarkSink implements SearchSink {
+    private final Consumer<Object> results;
+
+    public BenchmarkSink(Consumer<Object> results) {
+        this.results = results;
+    }
+
+    @Override
+    public void accept(SearchResult result) {
+        results.accept(result);
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return false;
+    }
+}
@@ -0,0 +1,79 @@
+package benchmarks;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// The two walks as they were before the engines existed, kept as the reference point. Both sit inside Swing
+// classes (FileExplorerApp.SearchTask and FileSearchGUI) that cannot be built headless, so they are copied
+// here with only the UI plumbing removed.
+final class BaselineWalkers {
+    private BaselineWalkers() {
+    }
+
+    // FileExplorerApp.SearchTask.searchFilesRecursive: find() on every name, File.isDirectory() per entry
+    static final class SearchTaskWalk {
+        private final Pattern regexPattern;
+        private final List<File> allResults = new ArrayList<>();
+        long entries;
+
+        SearchTaskWalk(Pattern regexPattern) {
+            this.regexPattern = regexPattern;
+        }
+
+        List<File> run(File directory) {
+            searchFilesRecursive(directory, 0);
+            return allResults;
+        }
+
+        private void searchFilesRecursive(File directory, int depth) {
+            File[] files = directory.listFiles();
+            if (files != null) {
+                List<File> matchedFiles = new ArrayList<>();
+                for (File file : files) {
+                    entries++;
+                    Matcher matcher = regexPattern.matcher(file.getName());
+                    if (matcher.find()) {
+                        matchedFiles.add(file);
+                    }
+                    if (file.isDirectory()) {
+                        searchFilesRecursive(file, depth + 1);
+                    }
+                }
+                allResults.addAll(matchedFiles);
+            }
+        }
+    }
+
+    // FileSearchGUI.searchFilesRecursive: matches() on file names, absolute paths collected as strings
+    static final class FileSearchGuiWalk {
+        private final Pattern pattern;
+        private final List<String> filesFound = new ArrayList<>();
+        long entries;
+
+        FileSearchGuiWalk(Pattern pattern) {
+            this.pattern = pattern;
+        }
+
+        List<String> run(File directory) {
+            searchFilesRecursive(directory);
+            return filesFound;
+        }
+
+        private void searchFilesRecursive(File dir) {
+            File[] files = dir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    entries++;
+                    if (file.isDirectory()) {
+                        searchFilesRecursive(file);
+                    } else if (pattern.matcher(file.getName()).matches()) {
+                        filesFound.add(file.getAbsolutePath());
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+// The search classes live in the unnamed package, which cannot be imported from here, so they are reached
+// through method handles. Handles held in static finals are constant to the JIT and inline like direct calls.
+final class Bridge {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.publicLookup();
+
+    private static final Class<?> SEARCH_ENGINE = load("SearchEngine");
+    private static final Class<?> SEARCH_CRITERIA = load("SearchCriteria");
+    private static final Class<?> SEARCH_SINK = load("SearchSink");
+    private static final Class<?> BENCHMARK_SINK = load("BenchmarkSink");
+    private static final Class<?> SEARCH_STATS = load("SearchStats");
+    private static final Class<?> NAME_MATCHER = load("NameMatcher");
+    private static final Class<?> MULTI_PATTERN_MATCHER = load("MultiPatternMatcher");
+
+    private static final MethodHandle NEW_CRITERIA = constructor(SEARCH_CRITERIA, Pattern.class, int.class, int.class, int.class);
+    private static final MethodHandle NEW_STATS = constructor(SEARCH_STATS);
+    private static final MethodHandle NEW_SINK = constructor(BENCHMARK_SINK, Consumer.class);
+    private static final MethodHandle SEARCH = method(SEARCH_ENGINE, "search", void.class, Path.class, SEARCH_CRITERIA, SEARCH_SINK, SEARCH_STATS);
+    private static final MethodHandle FILES_SCANNED = method(SEARCH_STATS, "getFilesScanned", long.class);
+    private static final MethodHandle FOLDERS_SCANNED = method(SEARCH_STATS, "getFoldersScanned", long.class);
+    private static final MethodHandle COMPILE_NAME_MATCHER = staticMethod(NAME_MATCHER, "compile", NAME_MATCHER, Pattern.class, boolean.class);
+    private static final MethodHandle NAME_MATCHES = method(NAME_MATCHER, "matches", boolean.class, CharSequence.class)
+            .asType(MethodType.methodType(boolean.class, Object.class, CharSequence.class));
+    private static final MethodHandle NEW_MULTI_PATTERN = constructor(MULTI_PATTERN_MATCHER, java.util.List.class);
+    private static final MethodHandle MATCHES_ANY = method(MULTI_PATTERN_MATCHER, "matchesAny", boolean.class, CharSequence.class)
+            .asType(MethodType.methodType(boolean.class, Object.class, CharSequence.class));
+
+    private Bridge() {
+    }
+
+    private static Class<?> load(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Root sources are not on the classpath: " + name, e);
+        }
+    }
+
+    private static MethodHandle constructor(Class<?> type, Class<?>... parameters) {
+        try {
+            return LOOKUP.findConstructor(type, MethodType.methodType(void.class, parameters));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MethodHandle method(Class<?> type, String name, Class<?> returnType, Class<?>... parameters) {
+        try {
+            return LOOKUP.findVirtual(type, name, MethodType.methodType(returnType, parameters));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MethodHandle staticMethod(Class<?> type, String name, Class<?> returnType, Class<?>... parameters) {
+        try {
+            return LOOKUP.findStatic(type, name, MethodType.methodType(returnType, parameters));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Engines by the names -engine= accepts
+    static Object newEngine(String name, int parallelism) {
+        try {
+            switch (name) {
+                case "recursive":
+                    return constructor(load("RecursiveSearchEngine")).invoke();
+                case "forkjoin":
+                    return constructor(load("ForkJoinSearchEngine"), int.class).invoke(parallelism);
+                case "nio":
+                    return constructor(load("NioSearchEngine")).invoke();
+                case "virtual":
+                    return constructor(load("VirtualThreadSearchEngine"), int.class).invoke(64);
+                case "index":
+                    // Not watched: a maintainer thread would only add noise to the measurement
+                    return constructor(load("IndexSearchEngine"), boolean.class, boolean.class).invoke(false, false);
+                default:
+                    throw new IllegalArgumentException("Unknown engine " + name);
+            }
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static Object newCriteria(Pattern pattern) {
+        try {
+            return NEW_CRITERIA.invoke(pattern, 0, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    // Runs one search and returns the number of entries the engine scanned. The sink is a compiled class, so
+    // each result costs the engine one interface call, as it would in the app.
+    static long search(Object engine, Path root, Object criteria, Consumer<Object> results) {
+        try {
+            Object sink = NEW_SINK.invoke(results);
+            Object stats = NEW_STATS.invoke();
+            SEARCH.invoke(engine, root, criteria, sink, stats);
+            return (long) FILES_SCANNED.invoke(stats) + (long) FOLDERS_SCANNED.invoke(stats);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static Object compileNameMatcher(Pattern pattern) {
+        try {
+            return COMPILE_NAME_MATCHER.invoke(pattern, false);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static boolean nameMatches(Object nameMatcher, CharSequence name) {
+        try {
+            return (boolean) NAME_MATCHES.invokeExact(nameMatcher, name);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static Object newMultiPatternMatcher(java.util.List<String> patterns) {
+        try {
+            return NEW_MULTI_PATTERN.invoke(patterns);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static boolean matchesAny(Object multiPatternMatcher, CharSequence name) {
+        try {
+            return (boolean) MATCHES_ANY.invokeExact(multiPatternMatcher, name);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable e) {
+        if (e instanceof RuntimeException) {
+            return (RuntimeException) e;
+        } else if (e instanceof Error) {
+            throw (Error) e;
+        }
+        return new IllegalStateException(e);
+    }
+}
@@ -0,0 +1,117 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+// Name matching alone, without any I/O: the regex as SearchCriteria used to run it against NameMatcher and,
+// for pattern lists, one alternation regex against MultiPatternMatcher. Scores are names per second.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MatchingBenchmark {
+    private static final int NAMES = 10_000;
+
+    @Param({"report", "\\.log$", "^IMG_", "^build.*\\.jar$", "[0-9]{3}\\.txt$"})
+    public String regex;
+
+    // Size of the list for the multi-pattern pair
+    @Param({"50"})
+    public int patternCount;
+
+    private String[] names;
+    private Pattern pattern;
+    private Object nameMatcher;
+    private Pattern alternation;
+    private Object multiPatternMatcher;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        String[] stems = {"report", "IMG_", "build", "notes", "data", "Thumbs", "index", "module", "Report-final"};
+        String[] extensions = {".txt", ".log", ".jar", ".java", ".jpg", ".json", ".db", ""};
+        names = new String[NAMES];
+        for (int i = 0; i < NAMES; i++) {
+            names[i] = stems[random.nextInt(stems.length)] + "_" + random.nextInt(100_000) + extensions[random.nextInt(extensions.length)];
+        }
+
+        pattern = Pattern.compile(regex);
+        nameMatcher = Bridge.compileNameMatcher(pattern);
+
+        List<String> patterns = new ArrayList<>();
+        StringBuilder alternatives = new StringBuilder();
+        for (int i = 0; i < patternCount; i++) {
+            String literal = "_" + random.nextInt(100_000) + ".";
+            patterns.add(literal);
+            alternatives.append(i == 0 ? "" : "|").append(Pattern.quote(literal));
+        }
+        alternation = Pattern.compile(alternatives.toString());
+        multiPatternMatcher = Bridge.newMultiPatternMatcher(patterns);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NAMES)
+    public int regexFind() {
+        int matches = 0;
+        for (String name : names) {
+            if (pattern.matcher(name).find()) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NAMES)
+    public int nameMatcher() {
+        int matches = 0;
+        for (String name : names) {
+            if (Bridge.nameMatches(nameMatcher, name)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NAMES)
+    public int alternationFind() {
+        int matches = 0;
+        for (String name : names) {
+            if (alternation.matcher(name).find()) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NAMES)
+    public int multiPatternMatcher() {
+        int matches = 0;
+        for (String name : names) {
+            if (Bridge.matchesAny(multiPatternMatcher, name)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+}
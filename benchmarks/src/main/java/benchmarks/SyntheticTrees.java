@@ -0,0 +1,99 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+// Deterministic directory trees for the traversal benchmarks. Each shape is generated once under
+// java.io.tmpdir/file-utilities-bench and reused by later runs; the marker file is written last, so an
+// interrupted generation is redone rather than measured.
+enum SyntheticTrees {
+    // 4 levels of 12 subdirectories, 8 files in each directory: ~22k directories, ~180k files
+    WIDE,
+    // One chain 400 directories deep with 5 files per level
+    DEEP,
+    // 40k directories of one file each, 200 per parent
+    TINY_DIRS,
+    // A single directory holding 200k files
+    FLAT;
+
+    private static final String VERSION = "v1";
+    private static final String[] EXTENSIONS = {".txt", ".log", ".java", ".class", ".jpg", ".json", ".md", ""};
+    private static final String[] STEMS = {"report", "IMG_", "build", "notes", "data", "Thumbs", "index", "module"};
+
+    Path root() {
+        Path root = Paths.get(System.getProperty("java.io.tmpdir"), "file-utilities-bench", name().toLowerCase() + "-" + VERSION);
+        Path marker = root.resolve(".complete");
+        if (Files.exists(marker)) {
+            return root;
+        }
+        try {
+            deleteRecursively(root);
+            Files.createDirectories(root);
+            Random random = new Random(name().hashCode()); // Same tree on every machine
+            switch (this) {
+                case WIDE:
+                    wide(root, 0, random);
+                    break;
+                case DEEP:
+                    Path level = root;
+                    for (int depth = 0; depth < 400; depth++) {
+                        files(level, 5, random);
+                        level = Files.createDirectory(level.resolve("level" + depth));
+                    }
+                    break;
+                case TINY_DIRS:
+                    for (int group = 0; group < 200; group++) {
+                        Path parent = Files.createDirectory(root.resolve("group" + group));
+                        for (int i = 0; i < 200; i++) {
+                            files(Files.createDirectory(parent.resolve("dir" + i)), 1, random);
+                        }
+                    }
+                    break;
+                case FLAT:
+                    files(root, 200_000, random);
+                    break;
+            }
+            Files.createFile(marker);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return root;
+    }
+
+    private static void wide(Path directory, int depth, Random random) throws IOException {
+        files(directory, 8, random);
+        if (depth == 4) {
+            return;
+        }
+        for (int i = 0; i < 12; i++) {
+            wide(Files.createDirectory(directory.resolve("sub" + i)), depth + 1, random);
+        }
+    }
+
+    private static void files(Path directory, int count, Random random) throws IOException {
+        for (int i = 0; i < count; i++) {
+            String name = STEMS[random.nextInt(STEMS.length)] + "_" + i + "_" + random.nextInt(1000)
+                    + EXTENSIONS[random.nextInt(EXTENSIONS.length)];
+            Files.createFile(directory.resolve(name));
+        }
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> entries = Files.walk(path)) {
+            Iterator<Path> deepestFirst = entries.sorted(Comparator.reverseOrder()).iterator();
+            while (deepestFirst.hasNext()) {
+                Files.delete(deepestFirst.next());
+            }
+        }
+    }
+}
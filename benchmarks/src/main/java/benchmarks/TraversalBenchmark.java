@@ -0,0 +1,84 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+// One full search of a synthetic tree per operation. The "entries" counter turns into entries/second in the
+// report; run with -prof gc (BenchmarkMain does by default) for the allocation rate of each scenario.
+// Trees come from the OS page cache after the first iteration, so this measures CPU and syscall cost, not disk.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class TraversalBenchmark {
+    // Ends of names the generated trees use for an eighth of their files
+    private static final Pattern FIND_PATTERN = Pattern.compile("\\.log$");
+    private static final Pattern WHOLE_NAME_PATTERN = Pattern.compile(".*\\.log");
+
+    @Param({"WIDE", "DEEP", "TINY_DIRS", "FLAT"})
+    public String scenario;
+
+    // baseline-searchtask and baseline-filesearchgui are the original walkers; the rest are -engine= names
+    @Param({"baseline-searchtask", "baseline-filesearchgui", "recursive", "forkjoin", "nio", "virtual", "index"})
+    public String walker;
+
+    private Path root;
+    private Object engine;
+    private Object criteria;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Entries {
+        public long entries;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            entries = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        root = SyntheticTrees.valueOf(scenario).root();
+        if (!walker.startsWith("baseline-")) {
+            engine = Bridge.newEngine(walker, Runtime.getRuntime().availableProcessors());
+            criteria = Bridge.newCriteria(FIND_PATTERN);
+            // Builds the index (or warms the page cache) outside the measurement
+            Bridge.search(engine, root, criteria, result -> { });
+        }
+    }
+
+    @Benchmark
+    public void search(Entries counter, Blackhole blackhole) {
+        if (walker.equals("baseline-searchtask")) {
+            BaselineWalkers.SearchTaskWalk walk = new BaselineWalkers.SearchTaskWalk(FIND_PATTERN);
+            blackhole.consume(walk.run(root.toFile()));
+            counter.entries += walk.entries;
+        } else if (walker.equals("baseline-filesearchgui")) {
+            BaselineWalkers.FileSearchGuiWalk walk = new BaselineWalkers.FileSearchGuiWalk(WHOLE_NAME_PATTERN);
+            blackhole.consume(walk.run(new File(root.toString())));
+            counter.entries += walk.entries;
+        } else {
+            counter.entries += Bridge.search(engine, root, criteria, blackhole::consume);
+        }
+    }
+}